@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing;
+
+import nl.utwente.ing.model.Dates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.ParseException;
+
+/**
+ * Completes the backfill of the dates in milliseconds since the epoch of <code>V3__epoch_dates.sql</code>, which only
+ * converts dates that are formatted exactly according to the API specification and leaves the others empty. Those are
+ * parsed in the same way as the API parses them instead, and the migration fails in case any of them can not be parsed.
+ *
+ * SQLite can not add a constraint to an existing column, so triggers reject any row without a date from then on.
+ */
+class EpochDateBackfill implements SchemaMigration.Migration {
+
+    /**
+     * The tables with their formatted date column, followed by the column of the date in milliseconds.
+     */
+    private static final String[][] COLUMNS = {
+            {"transactions", "date", "date_epoch"},
+            {"savingsgoals", "date", "date_epoch"},
+            {"paymentrequests", "due_date", "due_date_epoch"}
+    };
+
+    @Override
+    public int getVersion() {
+        return 7;
+    }
+
+    @Override
+    public String getDescription() {
+        return "epoch date backfill";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        for (String[] columns : COLUMNS) {
+            backfill(connection, columns[0], columns[1], columns[2]);
+            requireNotNull(connection, columns[0], columns[2]);
+        }
+    }
+
+    private static void backfill(Connection connection, String table, String dateColumn, String epochColumn)
+            throws SQLException {
+        try (Statement select = connection.createStatement();
+             ResultSet resultSet = select.executeQuery(String.format(
+                     "SELECT rowid, `%s` FROM `%s` WHERE `%s` IS NULL", dateColumn, table, epochColumn));
+             PreparedStatement update = connection.prepareStatement(String.format(
+                     "UPDATE `%s` SET `%s` = ? WHERE rowid = ?", table, epochColumn))) {
+            while (resultSet.next()) {
+                long rowID = resultSet.getLong(1);
+                String date = resultSet.getString(2);
+                if (date == null) {
+                    throw new SQLException(String.format("Row %d of %s has no %s", rowID, table, dateColumn));
+                }
+
+                try {
+                    update.setLong(1, Dates.parse(date));
+                } catch (ParseException e) {
+                    throw new SQLException(String.format("Invalid %s '%s' in row %d of %s", dateColumn, date, rowID,
+                            table), e);
+                }
+                update.setLong(2, rowID);
+                update.addBatch();
+            }
+
+            update.executeBatch();
+        }
+    }
+
+    private static void requireNotNull(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String event : new String[]{"INSERT", "UPDATE OF `" + column + "`"}) {
+                statement.executeUpdate(String.format(
+                        "CREATE TRIGGER `%1$s_%2$s_not_null_%3$s` BEFORE %4$s ON `%1$s` " +
+                        "WHEN NEW.`%2$s` IS NULL BEGIN SELECT RAISE(ABORT, '%1$s.%2$s may not be NULL'); END",
+                        table, column, event.startsWith("INSERT") ? "insert" : "update", event));
+            }
+        }
+    }
+}
@@ -25,8 +25,10 @@
 package nl.utwente.ing;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
@@ -34,9 +36,12 @@ import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.sqlite.SQLiteConfig;
 
 import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 import java.beans.PropertyVetoException;
+import java.sql.SQLException;
 import java.util.Objects;
 import java.util.Properties;
 
@@ -49,7 +54,33 @@ public class PersistenceJPAConfig {
      */
     private static final String DATABASE_NAME = "database.sqlite";
 
+    /**
+     * The time in milliseconds a write waits for the writer connection before it fails
+     */
+    private static final long WRITER_TIMEOUT = 30000;
+
+    /**
+     * How the application connects to the database, configured by the <code>dpa.storage.mode</code> property:
+     * <ul>
+     * <li><code>wal</code>: the database is switched to write-ahead logging. Read-write transactions share a single
+     * writer connection and wait for it in a queue, while read-only transactions use a pool of read-only connections
+     * that read the last committed state without waiting for the writer.</li>
+     * <li><code>pooled</code>: every transaction uses a connection from a single pool, in whichever journal mode the
+     * database is in. Concurrent writers compete for the lock of the database file.</li>
+     * </ul>
+     */
+    @Value("${dpa.storage.mode:wal}")
+    private String storageMode;
+
+    /**
+     * The path of the SQLite database, configured by the <code>dpa.storage.database</code> property. The database in
+     * the project resources is used when no path is given.
+     */
+    @Value("${dpa.storage.database:}")
+    private String databasePath;
+
     @Bean
+    @DependsOn("schemaMigration")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean entityManager = new LocalContainerEntityManagerFactoryBean();
         entityManager.setDataSource(dataSource());
@@ -62,8 +93,19 @@ public class PersistenceJPAConfig {
         return entityManager;
     }
 
+    /**
+     * The data source used by both JPA and JDBC, so they share the connection of a transaction.
+     */
     @Bean
-    public ComboPooledDataSource dataSource() {
+    public DataSource dataSource() {
+        if (!isWriteAheadLogging()) {
+            return connectionPool(false);
+        }
+
+        return new ReadWriteDataSource(new WriterDataSource(getJdbcUrl(), WRITER_TIMEOUT), connectionPool(true));
+    }
+
+    private ComboPooledDataSource connectionPool(boolean readOnly) {
         ComboPooledDataSource dataSource = new ComboPooledDataSource();
         try {
             dataSource.setDriverClass("org.sqlite.JDBC");
@@ -71,15 +113,50 @@ public class PersistenceJPAConfig {
             e.printStackTrace();
         }
 
-        String path = "jdbc:sqlite:" + Objects.requireNonNull(this.getClass().getClassLoader().
-                getResource(DATABASE_NAME)).getPath().replace("/", System.getProperty("file.separator")).replace("%20", " ");
-        dataSource.setJdbcUrl(path);
+        if (readOnly) {
+            SQLiteConfig config = new SQLiteConfig();
+            config.setReadOnly(true);
+            dataSource.setProperties(config.toProperties());
+        }
+
+        dataSource.setJdbcUrl(getJdbcUrl());
         dataSource.setMinPoolSize(5);
         dataSource.setAcquireIncrement(5);
         dataSource.setMaxPoolSize(20);
         return dataSource;
     }
 
+    private String getJdbcUrl() {
+        if (!databasePath.isEmpty()) {
+            return "jdbc:sqlite:" + databasePath;
+        }
+
+        return "jdbc:sqlite:" + Objects.requireNonNull(this.getClass().getClassLoader().
+                getResource(DATABASE_NAME)).getPath().replace("/", System.getProperty("file.separator")).replace("%20", " ");
+    }
+
+    private boolean isWriteAheadLogging() {
+        switch (storageMode) {
+            case "wal":
+                return true;
+            case "pooled":
+                return false;
+            default:
+                throw new IllegalStateException("Unknown storage mode: " + storageMode);
+        }
+    }
+
+    /**
+     * Brings the schema of the database up to date before the entity manager is created. In case of write-ahead
+     * logging this also switches the database to that journal mode, as the writer connection is opened first.
+     */
+    @Bean(initMethod = "migrate")
+    public SchemaMigration schemaMigration() throws SQLException {
+        DataSource dataSource = dataSource();
+        return new SchemaMigration(isWriteAheadLogging()
+                ? dataSource.unwrap(ReadWriteDataSource.class).getWriter() : dataSource);
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -95,6 +172,12 @@ public class PersistenceJPAConfig {
     private Properties jpaProperties() {
         Properties hibernateProperties = new Properties();
         hibernateProperties.setProperty("hibernate.dialect", "org.hibernate.dialect.SQLiteDialect");
+        if (isWriteAheadLogging()) {
+            // With the session kept open for the whole request, holding on to the connection would make every
+            // transaction of the request use the connection of the first one, whether that is the writer or not.
+            hibernateProperties.setProperty("hibernate.connection.handling_mode",
+                    "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+        }
         return hibernateProperties;
     }
 }
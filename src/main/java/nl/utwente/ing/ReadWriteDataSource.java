@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out the writer connection to read-write transactions and a connection from the pool of readers to every other
+ * use, based on the <code>readOnly</code> flag of the <code>@Transactional</code> annotation of the service method that
+ * started the transaction.
+ *
+ * The transaction manager obtains a connection before it marks the transaction as active or read-only, so the
+ * connection is a proxy that only decides which connection to use once the first statement is executed.
+ */
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final String WRITER = "writer";
+    private static final String READER = "reader";
+
+    private final WriterDataSource writer;
+    private final PooledDataSource readers;
+
+    public ReadWriteDataSource(WriterDataSource writer, PooledDataSource readers) {
+        this.writer = writer;
+        this.readers = readers;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(WRITER, writer);
+        targets.put(READER, readers);
+
+        AbstractRoutingDataSource routingDataSource = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isActualTransactionActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? WRITER : READER;
+            }
+        };
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(readers);
+        routingDataSource.afterPropertiesSet();
+        setTargetDataSource(routingDataSource);
+
+        // SQLite connections are in auto-commit mode and serializable by default, which saves the proxy from
+        // obtaining a connection just to find out.
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+
+    public WriterDataSource getWriter() {
+        return writer;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            readers.close();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the schema of the database up to date before it is used. Every script in the migration folder is named after
+ * the version it migrates to, such as <code>V4__session_indexes.sql</code>, and is applied exactly once, in order of
+ * its version. Migrations that can not be expressed in SQL are implemented as a {@link Migration} in Java instead, and are
+ * applied in between the scripts according to their version. The applied versions are recorded in the
+ * <code>schema_version</code> table.
+ */
+public class SchemaMigration {
+
+    private static final String LOCATION = "classpath:db/migration/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final List<Migration> JAVA_MIGRATIONS = Arrays.asList(
+            new EpochDateBackfill()
+    );
+
+    private final DataSource dataSource;
+
+    public SchemaMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Applies every migration that has not been applied yet. Each migration is applied in its own transaction, so a
+     * failing migration leaves the database at the previous version.
+     */
+    public void migrate() throws IOException, SQLException {
+        Map<Integer, Migration> migrations = new TreeMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            add(migrations, new ScriptMigration(resource));
+        }
+        for (Migration migration : JAVA_MIGRATIONS) {
+            add(migrations, migration);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            Set<Integer> appliedVersions = getAppliedVersions(connection);
+            connection.setAutoCommit(false);
+
+            try {
+                for (Migration migration : migrations.values()) {
+                    if (appliedVersions.contains(migration.getVersion())) {
+                        continue;
+                    }
+
+                    migration.migrate(connection);
+
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "INSERT INTO schema_version (version, description, applied_on) VALUES (?, ?, ?)")) {
+                        statement.setInt(1, migration.getVersion());
+                        statement.setString(2, migration.getDescription());
+                        statement.setLong(3, System.currentTimeMillis());
+                        statement.executeUpdate();
+                    }
+
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void add(Map<Integer, Migration> migrations, Migration migration) {
+        Migration previous = migrations.put(migration.getVersion(), migration);
+        if (previous != null) {
+            throw new IllegalStateException("Duplicate migration version " + migration.getVersion() + ": "
+                    + previous.getDescription() + " and " + migration.getDescription());
+        }
+    }
+
+    private static Set<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL, " +
+                    "description TEXT NOT NULL, applied_on INTEGER NOT NULL, PRIMARY KEY(version))");
+
+            try (ResultSet resultSet = statement.executeQuery("SELECT version FROM schema_version")) {
+                while (resultSet.next()) {
+                    versions.add(resultSet.getInt(1));
+                }
+            }
+        }
+
+        return versions;
+    }
+
+    /**
+     * A single step of the migration of the schema, which is applied within the transaction of the given connection.
+     */
+    interface Migration {
+
+        /**
+         * @return the version to which this migration brings the schema
+         */
+        int getVersion();
+
+        /**
+         * @return a short description of the migration, which is recorded once it has been applied
+         */
+        String getDescription();
+
+        void migrate(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Applies a script from the migration folder.
+     */
+    private static class ScriptMigration implements Migration {
+
+        private final Resource resource;
+        private final int version;
+        private final String description;
+
+        ScriptMigration(Resource resource) {
+            Matcher matcher = FILE_NAME.matcher(String.valueOf(resource.getFilename()));
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration file name: " + resource.getFilename());
+            }
+
+            this.resource = resource;
+            this.version = Integer.parseInt(matcher.group(1));
+            this.description = matcher.group(2).replace('_', ' ');
+        }
+
+        @Override
+        public int getVersion() {
+            return version;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public void migrate(Connection connection) {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(resource, StandardCharsets.UTF_8));
+        }
+    }
+}
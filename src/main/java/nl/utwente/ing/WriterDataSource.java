@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.sqlite.JDBC;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out a single connection to the database, which is used for every write. SQLite only allows one writer at a
+ * time, so instead of letting several connections compete for the lock of the database file and fail when they do
+ * not get it in time, writers wait in a queue and are given the connection in the order in which they asked for it.
+ *
+ * The connection switches the database to write-ahead logging when it is opened, so readers on other connections see
+ * the last committed state instead of waiting for the writer to commit. Closing a connection obtained from this data
+ * source returns it to the queue, after any uncommitted changes have been rolled back.
+ */
+public class WriterDataSource extends AbstractDataSource {
+
+    private final Driver driver = new JDBC();
+    private final String url;
+    private final long timeout;
+
+    /**
+     * A fair semaphore, so waiting writers are handed the connection in order of arrival.
+     */
+    private final Semaphore permit = new Semaphore(1, true);
+
+    private Connection connection;
+
+    /**
+     * @param url     the JDBC URL of the database
+     * @param timeout the time in milliseconds a writer waits for the connection before giving up
+     */
+    public WriterDataSource(String url, long timeout) {
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            if (!permit.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+
+        try {
+            if (connection == null || connection.isClosed()) {
+                connection = open();
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(connection));
+        } catch (SQLException | RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = driver.connect(url, new Properties());
+        try (Statement statement = connection.createStatement()) {
+            // The journal mode is kept in the database file, so this only changes anything the first time.
+            statement.executeQuery("PRAGMA journal_mode = WAL").close();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Closes the connection once the current writer, if any, is done with it.
+     */
+    public void close() throws SQLException {
+        permit.acquireUninterruptibly();
+        try {
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Passes every call on to the connection until the connection is closed, which hands it to the next writer.
+     */
+    private class Lease implements InvocationHandler {
+
+        private final Connection target;
+        private boolean closed;
+
+        Lease(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Writer connection [" + target + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has been returned to the writer queue");
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            try {
+                if (!target.isClosed() && !target.getAutoCommit()) {
+                    target.rollback();
+                    target.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                // The next writer opens a new connection rather than inheriting one in an unknown state.
+                target.close();
+                throw e;
+            } finally {
+                permit.release();
+            }
+        }
+    }
+}
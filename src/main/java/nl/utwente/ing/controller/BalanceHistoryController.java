@@ -24,265 +24,150 @@
  */
 package nl.utwente.ing.controller;
 
-import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
+import nl.utwente.ing.model.BalanceRollup;
+import nl.utwente.ing.model.Dates;
 import nl.utwente.ing.model.HistoryItem;
-import nl.utwente.ing.model.SavingsGoal;
+import nl.utwente.ing.model.Interval;
 import nl.utwente.ing.model.Session;
-import nl.utwente.ing.model.Transaction;
-import nl.utwente.ing.service.SavingsGoalService;
+import nl.utwente.ing.service.BalanceLedgerService;
+import nl.utwente.ing.service.BalanceRollupService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import nl.utwente.ing.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletResponse;
-import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api/v1/balance/history")
 public class BalanceHistoryController {
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    /**
+     * The resources of a session from which its balance history is computed.
+     */
+    private static final Resource[] RESOURCES = {Resource.transactions, Resource.savingsGoals};
 
     private final TransactionService transactionService;
-    private final SavingsGoalService savingsGoalService;
+    private final BalanceLedgerService balanceLedgerService;
+    private final BalanceRollupService balanceRollupService;
+    private final SessionVersionService sessionVersionService;
+    private final ResponseCache responseCache;
 
     @Autowired
-    public BalanceHistoryController(TransactionService transactionService, SavingsGoalService savingsGoalService) {
+    public BalanceHistoryController(TransactionService transactionService, BalanceLedgerService balanceLedgerService,
+                                    BalanceRollupService balanceRollupService,
+                                    SessionVersionService sessionVersionService, ResponseCache responseCache) {
         this.transactionService = transactionService;
-        this.savingsGoalService = savingsGoalService;
+        this.balanceLedgerService = balanceLedgerService;
+        this.balanceRollupService = balanceRollupService;
+        this.sessionVersionService = sessionVersionService;
+        this.responseCache = responseCache;
     }
 
     /**
      * Returns the history of the balance of a bank account using candlestick datapoints. The result is formatted
      * according to the API specification: https://app.swaggerhub.com/apis/djhuistra/INGHonours-balanceHistory/
+     * Every item covers a calendar interval and is read from the balance rollups, so at most one row is read per item.
+     * The history is cached until the session changes, and is not sent again to clients that already have it.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param interval        the interval period, such as a week or month
      * @param count           the number of interval items to return
+     * @param webRequest      the request, used to answer when the client already has the current history
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the bank account's history.
      */
     @RequestMapping(value = "", method = RequestMethod.GET, produces = "application/json")
-    public String getBalanceHistory(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                    @RequestParam(value = "session_id", required = false) String querySessionID,
-                                    @RequestParam(value = "interval", defaultValue = "month", required = false) String interval,
-                                    @RequestParam(value = "intervals", defaultValue = "50", required = false) int count,
-                                    HttpServletResponse response) {
+    public void getBalanceHistory(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                  @RequestParam(value = "session_id", required = false) String querySessionID,
+                                  @RequestParam(value = "interval", defaultValue = "month", required = false) String interval,
+                                  @RequestParam(value = "intervals", defaultValue = "50", required = false) int count,
+                                  WebRequest webRequest,
+                                  HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         // Intervals have a minimum of 1 and a maximum of 200.
         if (count < 1 || count > 200) {
             response.setStatus(405);
-            return null;
-        }
-
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        Gson gson = gsonBuilder.registerTypeAdapter(HistoryItem.class, new HistoryAdapter()).create();
-
-        int intervalType;
-        switch (interval) {
-            case "hour":
-                intervalType = Calendar.HOUR;
-                break;
-            case "day":
-                intervalType = Calendar.DAY_OF_YEAR;
-                break;
-            case "week":
-                intervalType = Calendar.WEEK_OF_YEAR;
-                break;
-            case "month":
-                intervalType = Calendar.MONTH;
-                break;
-            case "year":
-                intervalType = Calendar.YEAR;
-                break;
-            default:
-                response.setStatus(405);
-                return null;
+            return;
         }
 
+        Interval intervalType;
         try {
-            List<Transaction> transactions = transactionService.findBySessionAsc(session);
-
-            // In case there are no transactions, fill the results with empty groups.
-            if (transactions.isEmpty()) {
-                // Reset the date to the most recent transaction (now).
-                Calendar calendar = Calendar.getInstance();
-                calendar.setTime(DATE_FORMAT.parse(transactionService.findFirstByOrderByDateDesc().getDate()));
-
-                List<HistoryItem> historyItems = new LinkedList<>();
-                while (historyItems.size() < count) {
-                    calendar.add(intervalType, -1);
-                    historyItems.add(new HistoryItem(0, calendar.getTimeInMillis() / 1000));
-                }
-
-                return gson.toJson(historyItems);
-            }
-
-            List<SavingsGoal> savingsGoals = savingsGoalService.findBySession(session);
-            savingsGoals.forEach(s -> s.setBalance(0)); // Reset the balances of each goal so we can manually check whether they've been reached.
-
-            // Track the volume of savings for each transaction so we can retrieve them easily later on.
-            Map<Integer, Integer> savingVolumes = new HashMap<>();
-
-            // For each transaction we set the balance at that time of the transaction - taking into account the savings.
-            // This code is almost equal to the code in the SavingsGoalController, except we keep track of all states here.
-            for (int i = 0; i < transactions.size() - 1; i++) {
-                Transaction transaction = transactions.get(i);
-                Transaction nextTransaction = transactions.get(i + 1);
-
-                Calendar transactionDate = Calendar.getInstance();
-                transactionDate.setTime(DATE_FORMAT.parse(transaction.getDate()));
-
-                Calendar nextTransactionDate = Calendar.getInstance();
-                nextTransactionDate.setTime(DATE_FORMAT.parse(nextTransaction.getDate()));
-
-                if (transaction.getType().equals(nl.utwente.ing.model.Type.withdrawal)) {
-                    transaction.setCurrentBalance(transaction.getCurrentBalance() - transaction.getAmount());
-                } else {
-                    transaction.setCurrentBalance(transaction.getCurrentBalance() + transaction.getAmount());
-                }
-
-                // The next transaction starts with the value this transaction ended with (plus savings).
-                nextTransaction.setCurrentBalance(transaction.getCurrentBalance());
-
-                int monthsPassed = monthsPassed(transactionDate, nextTransactionDate);
-
-                for (int j = 0; j < monthsPassed; j++) {
-                    for (SavingsGoal savingsGoal : savingsGoals) {
-                        Calendar savingsGoalDate = Calendar.getInstance();
-                        savingsGoalDate.setTime(DATE_FORMAT.parse(savingsGoal.getDate()));
-
-                        // This savings goal is not valid yet.
-                        if (transactionDate.before(savingsGoalDate)) {
-                            continue;
-                        }
-
-                        // Ensure the requirements to process this saving have been met.
-                        if (nextTransaction.getCurrentBalance() >= savingsGoal.getMinBalanceRequired() && savingsGoal.getBalance() < savingsGoal.getGoal()) {
-                            nextTransaction.setCurrentBalance(nextTransaction.getCurrentBalance() - savingsGoal.getSavePerMonth());
-                            savingsGoal.setBalance(savingsGoal.getBalance() + savingsGoal.getSavePerMonth());
-
-                            if (savingVolumes.containsKey(nextTransaction.getId())) {
-                                savingVolumes.put(nextTransaction.getId(), savingVolumes.get(nextTransaction.getId()) + savingsGoal.getSavePerMonth());
-                            } else {
-                                savingVolumes.put(nextTransaction.getId(), savingsGoal.getSavePerMonth());
-                            }
-
-                            // In case we went over the goal, we set the balance to the goal and "refund" the difference.
-                            if (savingsGoal.getBalance() > savingsGoal.getGoal()) {
-                                nextTransaction.setCurrentBalance(nextTransaction.getCurrentBalance() + (savingsGoal.getBalance() - savingsGoal.getGoal()));
-                                savingsGoal.setBalance(savingsGoal.getGoal());
+            intervalType = Interval.valueOf(interval);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(405);
+            return;
+        }
 
-                                savingVolumes.put(nextTransaction.getId(), savingVolumes.get(nextTransaction.getId()) - (savingsGoal.getBalance() - savingsGoal.getGoal()));
-                            }
-                        }
-                    }
-                }
-            }
+        // Reset the date to the most recent transaction of the session (now). A session without transactions uses the
+        // date of another session, so the date is part of the tag and the cached request.
+        long version = sessionVersionService.getVersion(session, RESOURCES);
+        Long latestDate = transactionService.findLatestDate(session);
+        if (latestDate == null) {
+            // There are no transactions at all, so the history is empty and changes with the current time.
+            JsonCodec.write(response, getHistoryItems(session, intervalType, count, System.currentTimeMillis()));
+            return;
+        }
 
-            // The last transaction still needs to be processed because the loop above goes until size - 1.
-            Transaction lastTransaction = transactions.get(transactions.size() - 1);
-            if (lastTransaction.getType().equals(nl.utwente.ing.model.Type.withdrawal)) {
-                lastTransaction.setCurrentBalance(lastTransaction.getCurrentBalance() - lastTransaction.getAmount());
-            } else {
-                lastTransaction.setCurrentBalance(lastTransaction.getCurrentBalance() + lastTransaction.getAmount());
-            }
+        if (webRequest.checkNotModified(sessionVersionService.getTag(version) + "-" + latestDate + "-" + intervalType
+                + "-" + count)) {
+            return;
+        }
 
-            // After processing the savings we can reverse the list, as balance history needs it in descending order.
-            Collections.reverse(transactions);
+        responseCache.write(response, session, "balance/history?interval=" + intervalType + "&intervals=" + count
+                + "&now=" + latestDate, version, () -> getHistoryItems(session, intervalType, count, latestDate));
+    }
 
-            long balance = transactions.get(0).getCurrentBalance();
+    private List<HistoryItem> getHistoryItems(Session session, Interval intervalType, int count, long now) {
+        // Find the interval containing the current date.
+        Calendar calendar = intervalType.getStart(Dates.toCalendar(now));
 
-            // Reset the date to the most recent transaction (now).
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(DATE_FORMAT.parse(transactionService.findFirstByOrderByDateDesc().getDate()));
+        // The start of the oldest interval is found by stepping back one unit at a time, as stepping back several
+        // months at once might end on a different day.
+        Calendar windowStart = (Calendar) calendar.clone();
+        for (int i = 1; i < count; i++) {
+            windowStart.add(intervalType.getCalendarField(), -1);
+        }
 
-            // Set the reference calendar back one unit so we can find all transactions in that unit.
-            calendar.add(intervalType, -1);
+        // In case there are no transactions the balance is zero and there are no rollups, which results in empty
+        // groups.
+        long balance = balanceLedgerService.findLatestBalance(session);
 
-            List<HistoryItem> historyItems = new LinkedList<>();
+        Iterator<BalanceRollup> rollups = balanceRollupService.findFrom(session, intervalType, windowStart).iterator();
+        BalanceRollup rollup = rollups.hasNext() ? rollups.next() : null;
 
-            // Create an initial HistoryItem with the balance of the account as values.
+        List<HistoryItem> historyItems = new LinkedList<>();
+        while (historyItems.size() < count) {
+            // Every group closes with the balance the next group opened with.
             HistoryItem currentItem = new HistoryItem(balance, calendar.getTimeInMillis() / 1000);
-            historyItems.add(currentItem);
-
-            for (Transaction transaction : transactions) {
-                balance = transaction.getCurrentBalance();
-
-                // A calendar containing the date of the current transaction, used for comparing.
-                Calendar pointer = Calendar.getInstance();
-                pointer.setTime(DATE_FORMAT.parse(transaction.getDate()));
-
-                while (calendar.after(pointer)) {
-                    // Check whether we have already filled all the slots.
-                    if (historyItems.size() >= count) {
-                        break;
-                    }
 
-                    calendar.add(intervalType, -1);
-                    currentItem = new HistoryItem(currentItem.getOpen(), calendar.getTimeInMillis() / 1000);
-                    historyItems.add(currentItem);
-                }
+            if (rollup != null && rollup.getBucketStart() == calendar.getTimeInMillis()) {
+                currentItem.setOpen(rollup.getOpen());
+                currentItem.setHigh(Math.max(balance, rollup.getHigh()));
+                currentItem.setLow(Math.min(balance, rollup.getLow()));
+                currentItem.setVolume(rollup.getVolume());
 
-                if (pointer.before(calendar)) {
-                    // We just entered a new group, we can stop adding to the old history item and create a new one.
-
-                    // Stop once the maximum amount specified by the user has been reached.
-                    if (historyItems.size() >= count) {
-                        break;
-                    }
-
-                    // Some data from the old group has to be carried over to the new group.
-                    calendar.add(intervalType, -1);
-                    currentItem = new HistoryItem(currentItem.getOpen(), calendar.getTimeInMillis() / 1000);
-                    historyItems.add(currentItem);
-                }
-
-                currentItem.setOpen(transaction.getCurrentBalance());
-
-                if (currentItem.getOpen() > currentItem.getHigh()) {
-                    currentItem.setHigh(currentItem.getOpen());
-                }
-
-                if (currentItem.getOpen() < currentItem.getLow()) {
-                    currentItem.setLow(currentItem.getOpen());
-                }
-
-                currentItem.setVolume(
-                        currentItem.getVolume() +
-                        transaction.getAmount() +
-                        savingVolumes.getOrDefault(transaction.getId(), 0)
-                );
+                balance = rollup.getOpen();
+                rollup = rollups.hasNext() ? rollups.next() : null;
             }
 
-            // In case not enough transactions were retrieved from the database to fill the count:
-            // Similarly to the case of the empty set, create items of the last sum without any movement.
-            while (historyItems.size() < count) {
-                calendar.add(intervalType, -1);
-                historyItems.add(new HistoryItem(balance, calendar.getTimeInMillis() / 1000));
-            }
-
-            return gson.toJson(historyItems);
-        } catch (ParseException e) {
-            e.printStackTrace();
-            response.setStatus(500);
-            return null;
+            historyItems.add(currentItem);
+            calendar.add(intervalType.getCalendarField(), -1);
         }
-    }
 
-    private static int monthsPassed(Calendar start, Calendar end) {
-        int yearDiff = end.get(Calendar.YEAR) - start.get(Calendar.YEAR);
-        int monthDiff = end.get(Calendar.MONTH) - start.get(Calendar.MONTH);
-        return Math.abs((yearDiff * 12) + monthDiff);
+        return historyItems;
     }
 }
 
-class HistoryAdapter implements JsonSerializer<HistoryItem> {
+class HistorySerializer implements JsonCodec.Serializer<HistoryItem> {
+
+    static final HistorySerializer INSTANCE = new HistorySerializer();
 
     /**
      * A custom serializer for GSON to use to serialize a HistoryItem into the proper JSON representation formatted
@@ -290,15 +175,15 @@ class HistoryAdapter implements JsonSerializer<HistoryItem> {
      * stored in a long as cents.
      */
     @Override
-    public JsonElement serialize(HistoryItem historyItem, Type type, JsonSerializationContext jsonSerializationContext) {
-        JsonObject object = new JsonObject();
+    public void write(JsonWriter out, HistoryItem historyItem) throws IOException {
+        out.beginObject();
         // Formats the values in the database according to the API specification.
-        object.addProperty("open", historyItem.getOpen() / 100.0);
-        object.addProperty("close", historyItem.getClose() / 100.0);
-        object.addProperty("high", historyItem.getHigh() / 100.0);
-        object.addProperty("low", historyItem.getLow() / 100.0);
-        object.addProperty("volume", historyItem.getVolume() / 100.0);
-        object.addProperty("timestamp", historyItem.getTimestamp());
-        return object;
+        out.name("open").value(historyItem.getOpen() / 100.0);
+        out.name("close").value(historyItem.getClose() / 100.0);
+        out.name("high").value(historyItem.getHigh() / 100.0);
+        out.name("low").value(historyItem.getLow() / 100.0);
+        out.name("volume").value(historyItem.getVolume() / 100.0);
+        out.name("timestamp").value(historyItem.getTimestamp());
+        out.endObject();
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader which rejects the request with a <code>413 Payload Too Large</code> status as soon as more characters are
+ * read than allowed, either in total or since the start of the current item. As the limits are enforced on the
+ * characters read from the underlying reader, characters that are buffered ahead count towards the item that was
+ * being read at that time. An item can therefore exceed its limit by at most the size of the buffer of the reader
+ * reading from this reader.
+ */
+final class BoundedReader extends FilterReader {
+
+    private final long maxTotal;
+    private final long maxItem;
+
+    private long total;
+    private long item;
+
+    /**
+     * @param in       the reader to read from
+     * @param maxTotal the maximum number of characters to read in total
+     * @param maxItem  the maximum number of characters to read for a single item
+     */
+    BoundedReader(Reader in, long maxTotal, long maxItem) {
+        super(in);
+        this.maxTotal = maxTotal;
+        this.maxItem = maxItem;
+    }
+
+    /**
+     * Marks the start of the next item, for which the characters are counted separately.
+     */
+    void startItem() {
+        item = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        if (c != -1) {
+            count(1);
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long n) {
+        total += n;
+        item += n;
+        if (total > maxTotal || item > maxItem) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+        }
+    }
+}
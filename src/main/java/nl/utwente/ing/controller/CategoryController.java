@@ -24,15 +24,19 @@
  */
 package nl.utwente.ing.controller;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import nl.utwente.ing.model.Category;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.service.CategoryService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -40,24 +44,35 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, SessionVersionService sessionVersionService) {
         this.categoryService = categoryService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     /**
-     * Returns a list of all the categories that are available to the session ID.
+     * Returns a list of all the categories that are available to the session ID. The categories are not sent again to
+     * clients that already have them.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @return a JSON serialized representation of all categories
+     * @param webRequest      the request, used to answer when the client already has the current categories
+     * @return a JSON serialized representation of all categories, or null when the client already has them
      * @see Category
      */
     @RequestMapping(value = "", method = RequestMethod.GET)
     public List<Category> getCategories(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                        @RequestParam(value = "session_id", required = false) String querySessionID) {
+                                        @RequestParam(value = "session_id", required = false) String querySessionID,
+                                        WebRequest webRequest) {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
+
+        if (webRequest.checkNotModified(sessionVersionService.getTag(
+                sessionVersionService.getVersion(session, Resource.categories)))) {
+            return null;
+        }
+
         return categoryService.findBySession(session);
     }
 
@@ -67,7 +82,7 @@ public class CategoryController {
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @param body            the request body containing the JSON representation of the Category to add
+     * @param request         the request containing the JSON representation of the Category to add
      * @param response        the response shown to the user, necessary to edit the status code of the response
      * @return a JSON serialized representation of the newly added Category
      * @see Category
@@ -75,13 +90,12 @@ public class CategoryController {
     @RequestMapping(value = "", method = RequestMethod.POST)
     public Category addCategory(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
                                 @RequestParam(value = "session_id", required = false) String querySessionID,
-                                @RequestBody String body,
-                                HttpServletResponse response) {
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            Gson gson = new Gson();
-            Category category = gson.fromJson(body, Category.class);
+            Category category = JsonCodec.read(request, Category.class);
             category.setSession(session);
 
             if (category.getName() == null) {
@@ -113,7 +127,7 @@ public class CategoryController {
                                 @PathVariable("id") int id,
                                 HttpServletResponse response) {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
-        Category result = categoryService.findByIdAndSession(id, session);
+        Category result = categoryService.findViewByIdAndSession(id, session);
         response.setStatus(result == null ? 404 : 200);
         return result;
     }
@@ -124,7 +138,7 @@ public class CategoryController {
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param id              the category ID corresponding to the category to update
-     * @param body            the request body containing the JSON representation of the Category to update
+     * @param request         the request containing the JSON representation of the Category to update
      * @param response        the response shown to the user, necessary to edit the status code of the response
      * @return a JSON serialized representation of the updated Category
      * @see Category
@@ -133,13 +147,12 @@ public class CategoryController {
     public Category putCategory(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
                                 @RequestParam(value = "session_id", required = false) String querySessionID,
                                 @PathVariable("id") int id,
-                                @RequestBody String body,
-                                HttpServletResponse response) {
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            Gson gson = new Gson();
-            Category category = gson.fromJson(body, Category.class);
+            Category category = JsonCodec.read(request, Category.class);
             category.setId(id);
             category.setSession(session);
 
@@ -24,71 +24,96 @@
  */
 package nl.utwente.ing.controller;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import nl.utwente.ing.model.Category;
 import nl.utwente.ing.model.CategoryRule;
+import nl.utwente.ing.model.CategoryRuleJob;
 import nl.utwente.ing.model.Session;
+import nl.utwente.ing.service.CategoryRuleJobService;
 import nl.utwente.ing.service.CategoryRuleService;
 import nl.utwente.ing.service.CategoryService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/categoryRules")
 public class CategoryRuleController {
 
+    /**
+     * The resources of a session from which its category rules are returned.
+     */
+    private static final Resource[] RESOURCES = {Resource.categoryRules, Resource.categories};
+
     private final CategoryRuleService categoryRuleService;
     private final CategoryService categoryService;
+    private final CategoryRuleJobService categoryRuleJobService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public CategoryRuleController(CategoryRuleService categoryRuleService, CategoryService categoryService) {
+    public CategoryRuleController(CategoryRuleService categoryRuleService, CategoryService categoryService,
+                                  CategoryRuleJobService categoryRuleJobService,
+                                  SessionVersionService sessionVersionService) {
         this.categoryRuleService = categoryRuleService;
         this.categoryService = categoryService;
+        this.categoryRuleJobService = categoryRuleJobService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     /**
-     * Returns a list of all the category rules that are available to the session ID.
+     * Returns a list of all the category rules that are available to the session ID. The category rules are not sent
+     * again to clients that already have them.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @return a JSON serialized representation of all category rules
+     * @param webRequest      the request, used to answer when the client already has the current category rules
+     * @param response        the response shown to the user, to which the category rules are written
      * @see CategoryRule
      */
     @RequestMapping(value = "", method = RequestMethod.GET, produces = "application/json")
-    public String getCategoryRules(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                   @RequestParam(value = "session_id", required = false) String querySessionID) {
+    public void getCategoryRules(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                 @RequestParam(value = "session_id", required = false) String querySessionID,
+                                 WebRequest webRequest,
+                                 HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
+        if (webRequest.checkNotModified(sessionVersionService.getTag(
+                sessionVersionService.getVersion(session, RESOURCES)))) {
+            return;
+        }
+
         List<CategoryRule> categoryRules = categoryRuleService.findBySession(session);
-        return new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create().toJson(categoryRules);
+        JsonCodec.write(response, categoryRules);
     }
 
     /**
      * Creates a new CategoryRule that is linked to the current session ID. Expects the body to be formatted according
      * to the <a href="https://app.swaggerhub.com/apis/djhuistra/INGHonours-CategoryRules/">API specification</a>.
+     * In case the rule should be applied on the history, the existing transactions are updated in the background, of
+     * which the progress can be followed using {@link #getCategoryRuleJob}.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @param body            the request body containing the JSON representation of the CategoryRule to add
+     * @param request         the request containing the JSON representation of the CategoryRule to add
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the newly added CategoryRule
      * @see CategoryRule
      */
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
-    public String addCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                  @RequestParam(value = "session_id", required = false) String querySessionID,
-                                  @RequestBody String body,
-                                  HttpServletResponse response) {
+    public void addCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                @RequestParam(value = "session_id", required = false) String querySessionID,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            Gson gson = new Gson();
-            CategoryRule categoryRule = gson.fromJson(body, CategoryRule.class);
+            CategoryRule categoryRule = JsonCodec.read(request, CategoryRule.class);
 
             if (categoryRule.getDescription() == null || categoryRule.getIban() == null
                     || categoryRule.getType() == null || categoryRule.getCategoryId() == null) {
@@ -99,7 +124,7 @@ public class CategoryRuleController {
 
             if (category == null) {
                 response.setStatus(404);
-                return null;
+                return;
             }
 
             categoryRule.setSession(session);
@@ -107,15 +132,14 @@ public class CategoryRuleController {
             CategoryRule result = categoryRuleService.add(categoryRule);
 
             if (result.shouldApplyOnHistory()) {
-                categoryRuleService.updateTransactions(result);
+                categoryRuleJobService.submit(result);
             }
 
             response.setStatus(201);
-            return new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create().toJson(result);
+            JsonCodec.write(response, result);
         } catch (JsonSyntaxException e) {
             e.printStackTrace();
             response.setStatus(405);
-            return null;
         }
     }
 
@@ -126,25 +150,49 @@ public class CategoryRuleController {
      * @param querySessionID  the session ID present in the URL of the request
      * @param id              the category rule ID corresponding to the category rule to return
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the specified CategoryRule
      * @see CategoryRule
      */
     @RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = "application/json")
-    public String getCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                  @RequestParam(value = "session_id", required = false) String querySessionID,
-                                  @PathVariable("id") int id,
-                                  HttpServletResponse response) {
+    public void getCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                @RequestParam(value = "session_id", required = false) String querySessionID,
+                                @PathVariable("id") int id,
+                                HttpServletResponse response) throws IOException {
+        Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
+
+        CategoryRule result = categoryRuleService.findViewByIdAndSession(id, session);
+
+        if (result == null) {
+            response.setStatus(404);
+        } else {
+            response.setStatus(200);
+            JsonCodec.write(response, result);
+        }
+    }
+
+    /**
+     * Returns the progress of applying the category rule corresponding to the category rule ID to the existing
+     * transactions. Only available for category rules that were created to be applied on the history.
+     *
+     * @param headerSessionID the session ID present in the header of the request
+     * @param querySessionID  the session ID present in the URL of the request
+     * @param id              the category rule ID corresponding to the category rule of which to return the job
+     * @param response        the response shown to the user, necessary to edit the status code of the response
+     * @see CategoryRuleJob
+     */
+    @RequestMapping(value = "/{id}/job", method = RequestMethod.GET, produces = "application/json")
+    public void getCategoryRuleJob(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                   @RequestParam(value = "session_id", required = false) String querySessionID,
+                                   @PathVariable("id") int id,
+                                   HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
-        CategoryRule result = categoryRuleService.findByIdAndSession(id, session);
+        CategoryRuleJob result = categoryRuleJobService.findByCategoryRuleIdAndSession(id, session);
 
         if (result == null) {
             response.setStatus(404);
-            return null;
         } else {
             response.setStatus(200);
-            result.setCategoryId(result.getCategory().getId());
-            return new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create().toJson(result);
+            JsonCodec.write(response, result);
         }
     }
 
@@ -154,22 +202,20 @@ public class CategoryRuleController {
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param id              the category rule ID corresponding to the category rule to update
-     * @param body            the request body containing the JSON representation of the CategoryRule to update
+     * @param request         the request containing the JSON representation of the CategoryRule to update
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the updated CategoryRule
      * @see CategoryRule
      */
     @RequestMapping(value = "/{id}", method = RequestMethod.PUT, produces = "application/json")
-    public String putCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                  @RequestParam(value = "session_id", required = false) String querySessionID,
-                                  @PathVariable("id") int id,
-                                  @RequestBody String body,
-                                  HttpServletResponse response) {
+    public void putCategoryRule(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                @RequestParam(value = "session_id", required = false) String querySessionID,
+                                @PathVariable("id") int id,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            Gson gson = new Gson();
-            CategoryRule categoryRule = gson.fromJson(body, CategoryRule.class);
+            CategoryRule categoryRule = JsonCodec.read(request, CategoryRule.class);
             categoryRule.setId(id);
 
             if (categoryRule.getDescription() == null || categoryRule.getIban() == null
@@ -181,22 +227,20 @@ public class CategoryRuleController {
 
             if (category == null) {
                 response.setStatus(404);
-                return null;
+                return;
             }
 
             categoryRule.setSession(session);
             categoryRule.setCategory(category);
 
             if (categoryRuleService.update(categoryRule) == 1) {
-                return getCategoryRule(headerSessionID, querySessionID, id, response);
+                getCategoryRule(headerSessionID, querySessionID, id, response);
             } else {
                 response.setStatus(404);
-                return null;
             }
         } catch (JsonSyntaxException e) {
             e.printStackTrace();
             response.setStatus(405);
-            return null;
         }
     }
 
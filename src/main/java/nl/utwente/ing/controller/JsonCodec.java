@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import nl.utwente.ing.model.HistoryItem;
+import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.PaymentRequestView;
+import nl.utwente.ing.model.SavingsGoal;
+import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.TransactionView;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The JSON representation shared by all controllers. Gson instances are thread-safe, so a single instance with the
+ * adapters of all models is created once instead of for every request. Fields of models without an adapter are only
+ * (de)serialized when they are annotated with {@link com.google.gson.annotations.Expose}.
+ * <p>
+ * Request bodies are parsed while they are read from the request, and are rejected with a <code>413 Payload Too
+ * Large</code> status as soon as they exceed their size limit.
+ */
+final class JsonCodec {
+
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Transaction.class, TransactionAdapter.INSTANCE.nullSafe())
+            .registerTypeAdapterFactory(writeOnly(TransactionView.class, TransactionViewSerializer.INSTANCE))
+            .registerTypeAdapter(PaymentRequest.class, PaymentRequestAdapter.INSTANCE.nullSafe())
+            .registerTypeAdapterFactory(writeOnly(PaymentRequestView.class, PaymentRequestViewSerializer.INSTANCE))
+            .registerTypeAdapter(SavingsGoal.class, SavingsGoalAdapter.INSTANCE.nullSafe())
+            .registerTypeAdapterFactory(writeOnly(HistoryItem.class, HistorySerializer.INSTANCE))
+            .excludeFieldsWithoutExposeAnnotation()
+            .create();
+
+    /**
+     * The maximum size in characters of a request body containing a single item, and of every item of a bulk request.
+     */
+    static final long MAX_ITEM_SIZE = 64 * 1024;
+
+    /**
+     * The maximum size in characters of a request body containing many items.
+     */
+    static final long MAX_BULK_SIZE = 256 * 1024 * 1024;
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private JsonCodec() {}
+
+    /**
+     * Writes the JSON representation of a model that is only ever written, such as a read-only view.
+     *
+     * @param <T> the type of the model
+     */
+    interface Serializer<T> {
+
+        void write(JsonWriter out, T value) throws IOException;
+    }
+
+    /**
+     * Returns a factory of the adapter of the given model, which writes the model using the serializer and leaves
+     * reading it to Gson, like a {@link com.google.gson.JsonSerializer} without a deserializer does. Unlike such a
+     * serializer, it writes the model directly instead of building a tree of JSON elements for every value first.
+     *
+     * @param type       the class of the model
+     * @param serializer the serializer writing the model
+     * @param <T>        the type of the model
+     * @return a factory creating the adapter of the model
+     */
+    private static <T> TypeAdapterFactory writeOnly(Class<T> type, Serializer<T> serializer) {
+        return new TypeAdapterFactory() {
+            @Override
+            public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+                if (typeToken.getRawType() != type) {
+                    return null;
+                }
+
+                TypeAdapter<R> delegate = gson.getDelegateAdapter(this, typeToken);
+                return new TypeAdapter<R>() {
+                    @Override
+                    public void write(JsonWriter out, R value) throws IOException {
+                        if (value == null) {
+                            out.nullValue();
+                        } else {
+                            serializer.write(out, type.cast(value));
+                        }
+                    }
+
+                    @Override
+                    public R read(JsonReader in) throws IOException {
+                        return delegate.read(in);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Reads a single value directly from the JSON body of the request, without copying the body first.
+     *
+     * @param request the request to read the value from
+     * @param type    the class of the value to read
+     * @param <T>     the type of the value to read
+     * @return the value represented by the body of the request
+     * @throws HttpMessageNotReadableException in case the body of the request is empty
+     * @throws IOException                     in case the request could not be read
+     */
+    static <T> T read(HttpServletRequest request, Class<T> type) throws IOException {
+        T value = GSON.fromJson(reader(request, MAX_ITEM_SIZE, MAX_ITEM_SIZE), type);
+        if (value == null) {
+            throw new HttpMessageNotReadableException("Required request body is missing");
+        }
+        return value;
+    }
+
+    /**
+     * Returns a reader of the body of the request which enforces the given size limits. Requests of which the
+     * declared length already exceeds the total limit are rejected before reading them.
+     *
+     * @param request  the request of which to read the body
+     * @param maxTotal the maximum size of the body in characters
+     * @param maxItem  the maximum size in characters of every item in the body
+     * @return a reader of the body of the request
+     * @throws IOException in case the request could not be read
+     */
+    static BoundedReader reader(HttpServletRequest request, long maxTotal, long maxItem) throws IOException {
+        if (request.getContentLengthLong() > maxTotal) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+        }
+        return new BoundedReader(request.getReader(), maxTotal, maxItem);
+    }
+
+    /**
+     * Writes the JSON representation of the given value directly to the body of the response, without building the
+     * complete representation in memory first.
+     *
+     * @param response the response to write the value to
+     * @param value    the value to write, which is written as <code>null</code> in case it is null
+     * @throws IOException in case the response could not be written
+     */
+    static void write(HttpServletResponse response, Object value) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        GSON.toJson(value, response.getWriter());
+    }
+
+    /**
+     * Returns the JSON representation of the given value encoded as UTF-8, so it can be written more than once.
+     *
+     * @param value the value to serialize, which is serialized as <code>null</code> in case it is null
+     * @return the encoded JSON representation of the value
+     */
+    static byte[] toBytes(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            GSON.toJson(value, writer);
+        } catch (IOException e) {
+            // Writing to memory does not fail.
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a JSON representation that was encoded using {@link #toBytes(Object)} to the body of the response.
+     *
+     * @param response the response to write to
+     * @param body     the encoded JSON representation to write
+     * @throws IOException in case the response could not be written
+     */
+    static void write(HttpServletResponse response, byte[] body) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Returns a writer to write a JSON representation directly to the body of the response, which should be flushed
+     * once it has been written.
+     *
+     * @param response the response to write to
+     * @return a writer of the body of the response
+     * @throws IOException in case the response could not be written
+     */
+    static JsonWriter writer(HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        return GSON.newJsonWriter(response.getWriter());
+    }
+}
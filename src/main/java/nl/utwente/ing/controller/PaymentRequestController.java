@@ -25,44 +25,68 @@
 package nl.utwente.ing.controller;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import nl.utwente.ing.model.Amounts;
+import nl.utwente.ing.model.Dates;
 import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.PaymentRequestView;
 import nl.utwente.ing.model.Session;
-import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.TransactionView;
 import nl.utwente.ing.service.PaymentRequestService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/v1/paymentRequests")
 public class PaymentRequestController {
 
+    /**
+     * The resources of a session from which its payment requests and their transactions are returned.
+     */
+    private static final Resource[] RESOURCES = {Resource.paymentRequests, Resource.transactions,
+            Resource.categories};
+
     private static PaymentRequestService paymentRequestService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public PaymentRequestController(PaymentRequestService paymentRequestService) {
+    public PaymentRequestController(PaymentRequestService paymentRequestService,
+                                    SessionVersionService sessionVersionService) {
         PaymentRequestController.paymentRequestService = paymentRequestService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     /**
-     * Returns a list of all the payment requests that are available to the session ID.
+     * Returns a list of all the payment requests that are available to the session ID. The payment requests are not
+     * sent again to clients that already have them.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @return a JSON serialized representation of all payment requests
+     * @param webRequest      the request, used to answer when the client already has the current payment requests
+     * @param response        the response shown to the user, to which the payment requests are written
      * @see PaymentRequest
      */
     @RequestMapping(value = "", method = RequestMethod.GET, produces = "application/json")
-    public String getPaymentRequests(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                     @RequestParam(value = "session_id", required = false) String querySessionID) {
+    public void getPaymentRequests(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                   @RequestParam(value = "session_id", required = false) String querySessionID,
+                                   WebRequest webRequest,
+                                   HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(PaymentRequest.class, new PaymentRequestAdapter());
+        if (webRequest.checkNotModified(sessionVersionService.getTag(
+                sessionVersionService.getVersion(session, RESOURCES)))) {
+            return;
+        }
 
-        return gsonBuilder.create().toJson(paymentRequestService.findBySession(session));
+        JsonCodec.write(response, paymentRequestService.findBySession(session));
     }
 
     /**
@@ -71,24 +95,19 @@ public class PaymentRequestController {
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @param body            the request body containing the JSON representation of the PaymentRequest to add
+     * @param request         the request containing the JSON representation of the PaymentRequest to add
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the newly added PaymentRequest
      * @see PaymentRequest
      */
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
-    public String addPaymentRequest(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                    @RequestParam(value = "session_id", required = false) String querySessionID,
-                                    @RequestBody String body,
-                                    HttpServletResponse response) {
+    public void addPaymentRequest(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                  @RequestParam(value = "session_id", required = false) String querySessionID,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            GsonBuilder gsonBuilder = new GsonBuilder();
-            gsonBuilder.registerTypeAdapter(PaymentRequest.class, new PaymentRequestAdapter());
-            Gson gson = gsonBuilder.create();
-
-            PaymentRequest paymentRequest = gson.fromJson(body, PaymentRequest.class);
+            PaymentRequest paymentRequest = JsonCodec.read(request, PaymentRequest.class);
             paymentRequest.setSession(session);
 
             if (paymentRequest.getDescription() == null || paymentRequest.getRequestCount() == 0
@@ -96,19 +115,19 @@ public class PaymentRequestController {
                 throw new JsonSyntaxException("PaymentRequest is missing one or more elements");
             }
 
+            PaymentRequest result = paymentRequestService.add(paymentRequest);
             response.setStatus(201);
-            return gsonBuilder.create().toJson(paymentRequestService.add(paymentRequest));
+            JsonCodec.write(response, result);
         } catch (JsonSyntaxException e) {
             e.printStackTrace();
             response.setStatus(405);
-            return null;
         }
     }
 }
 
-class PaymentRequestAdapter implements JsonDeserializer<PaymentRequest>, JsonSerializer<PaymentRequest> {
+class PaymentRequestAdapter extends TypeAdapter<PaymentRequest> {
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    static final PaymentRequestAdapter INSTANCE = new PaymentRequestAdapter();
 
     /**
      * A custom deserializer for GSON to use to deserialize a PaymentRequest formatted according to the API specification
@@ -116,9 +135,8 @@ class PaymentRequestAdapter implements JsonDeserializer<PaymentRequest>, JsonSer
      * used format.
      */
     @Override
-    public PaymentRequest deserialize(JsonElement json, java.lang.reflect.Type type,
-                                      JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-        JsonObject jsonObject = json.getAsJsonObject();
+    public PaymentRequest read(JsonReader in) throws IOException {
+        JsonObject jsonObject = new JsonParser().parse(in).getAsJsonObject();
 
         JsonElement descriptionElement = jsonObject.get("description");
         JsonElement amountElement = jsonObject.get("amount");
@@ -130,20 +148,18 @@ class PaymentRequestAdapter implements JsonDeserializer<PaymentRequest>, JsonSer
             throw new JsonParseException("Missing one or more required fields");
         }
 
-        String dueDate;
+        long dueDate;
         try {
-            dueDate = dueDateElement.getAsString();
-            // Check whether the date was formatted properly by parsing it.
-            DATE_FORMAT.parse(dueDate);
+            dueDate = Dates.parse(dueDateElement.getAsString());
         } catch (ParseException e) {
             throw new JsonParseException("Invalid date specified");
         }
 
         long amount;
-        if (amountElement.getAsString().contains(".")) {
-            amount = Long.parseLong(amountElement.getAsString().replace(".", ""));
-        } else {
-            amount = Long.valueOf(amountElement.getAsString()) * 100;
+        try {
+            amount = Amounts.parse(amountElement.getAsString());
+        } catch (ParseException e) {
+            throw new JsonParseException("Invalid amount specified");
         }
 
         String description = descriptionElement.getAsString();
@@ -154,27 +170,40 @@ class PaymentRequestAdapter implements JsonDeserializer<PaymentRequest>, JsonSer
 
     /**
      * A custom serializer for GSON to use to serialize a PaymentRequest into the proper JSON representation formatted
-     * according to the API. Formats the amount according to the specification as they are internally stored in a
-     * long as cents.
+     * according to the API, which is the same as the representation of its read-only view.
      */
     @Override
-    public JsonElement serialize(PaymentRequest paymentRequest, java.lang.reflect.Type type,
-                                 JsonSerializationContext jsonSerializationContext) {
-        JsonObject object = new JsonObject();
+    public void write(JsonWriter out, PaymentRequest paymentRequest) throws IOException {
+        PaymentRequestViewSerializer.INSTANCE.write(out, new PaymentRequestView(paymentRequest));
+    }
+}
 
-        object.addProperty("id", paymentRequest.getId());
-        object.addProperty("description", paymentRequest.getDescription());
-        object.addProperty("due_date", paymentRequest.getDueDate());
-        object.addProperty("amount", paymentRequest.getAmount() / 100.0);
-        object.addProperty("number_of_requests", paymentRequest.getRequestCount());
-        object.addProperty("filled", paymentRequest.isFilled());
+class PaymentRequestViewSerializer implements JsonCodec.Serializer<PaymentRequestView> {
 
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionAdapter());
-        Gson gson = gsonBuilder.create();
+    static final PaymentRequestViewSerializer INSTANCE = new PaymentRequestViewSerializer();
 
-        object.add("transactions", gson.toJsonTree(paymentRequest.getTransactions()));
+    /**
+     * A custom serializer for GSON to use to serialize a PaymentRequestView into the proper JSON representation
+     * formatted according to the API. Formats the amount according to the specification as they are internally stored
+     * in a long as cents.
+     */
+    @Override
+    public void write(JsonWriter out, PaymentRequestView paymentRequest) throws IOException {
+        out.beginObject();
+
+        out.name("id").value(paymentRequest.getId());
+        out.name("description").value(paymentRequest.getDescription());
+        out.name("due_date").value(paymentRequest.getDueDate());
+        out.name("amount").value(paymentRequest.getAmount() / 100.0);
+        out.name("number_of_requests").value(paymentRequest.getRequestCount());
+        out.name("filled").value(paymentRequest.isFilled());
+
+        out.name("transactions").beginArray();
+        for (TransactionView transaction : paymentRequest.getTransactions()) {
+            TransactionViewSerializer.INSTANCE.write(out, transaction);
+        }
+        out.endArray();
 
-        return object;
+        out.endObject();
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.utwente.ing.model.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the serialized responses of expensive requests, so a request that is repeated while the data of its session
+ * did not change is answered without reading the database. Every response is stored together with the version of the
+ * resources of the session it was computed from, and is only reused while those resources still have that version.
+ *
+ * The cache is limited to a total number of bytes, after which the least recently used responses are removed.
+ *
+ * Identical requests that miss the cache at the same time share a single computation: the first one computes the
+ * response, while the others wait for it and write the same result.
+ */
+@Component
+public class ResponseCache {
+
+    /**
+     * The approximate number of bytes used by an entry in addition to the response itself.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * The responses that are being computed, by their key and version.
+     */
+    private final Map<String, CompletableFuture<byte[]>> computations = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    @Autowired
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${dpa.response-cache.max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.hits = meterRegistry.counter("responses.cache.hits");
+        this.misses = meterRegistry.counter("responses.cache.misses");
+        this.coalesced = meterRegistry.counter("responses.cache.coalesced");
+        meterRegistry.gauge("responses.cache.bytes", this, ResponseCache::getBytes);
+    }
+
+    /**
+     * Writes the response to the request, which is taken from the cache in case it was computed at the same version,
+     * is taken from an identical request that is computing it at the moment, or is computed and stored otherwise.
+     *
+     * @param response the response to write to
+     * @param session  the session of which the data is returned
+     * @param request  the endpoint and all parameters that affect the response, besides the session
+     * @param version  the version of the resources of the session on which the response depends, which has to be read
+     *                 before the value is computed
+     * @param value    computes the value to return in case it is not cached
+     * @throws IOException in case the response could not be written
+     */
+    void write(HttpServletResponse response, Session session, String request, long version, Supplier<?> value)
+            throws IOException {
+        String key = session.getSessionID() + '\n' + request;
+
+        byte[] body = get(key, version);
+        if (body == null) {
+            body = compute(key, version, value);
+        } else {
+            hits.increment();
+        }
+
+        JsonCodec.write(response, body);
+    }
+
+    private byte[] compute(String key, long version, Supplier<?> value) {
+        String computationKey = key + '\n' + version;
+        CompletableFuture<byte[]> computation = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = computations.putIfAbsent(computationKey, computation);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                // Fail in the same way as the request that computed the response.
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        misses.increment();
+        try {
+            byte[] body = JsonCodec.toBytes(value.get());
+            // The response is stored before the computation is removed, so identical requests find either of them.
+            put(key, version, body);
+            computation.complete(body);
+            return body;
+        } catch (RuntimeException | Error e) {
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            computations.remove(computationKey, computation);
+        }
+    }
+
+    private synchronized byte[] get(String key, long version) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.version != version ? null : entry.body;
+    }
+
+    private synchronized void put(String key, long version, byte[] body) {
+        long size = getSize(key, body);
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.get(key);
+        if (previous != null && previous.version > version) {
+            // A request that started later already stored a more recent response.
+            return;
+        }
+
+        previous = entries.put(key, new Entry(version, body));
+        bytes += size;
+        if (previous != null) {
+            bytes -= getSize(key, previous.body);
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            bytes -= getSize(eldest.getKey(), eldest.getValue().body);
+            iterator.remove();
+        }
+    }
+
+    private synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static long getSize(String key, byte[] body) {
+        return ENTRY_OVERHEAD + 2L * key.length() + body.length;
+    }
+
+    private static class Entry {
+
+        private final long version;
+        private final byte[] body;
+
+        Entry(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
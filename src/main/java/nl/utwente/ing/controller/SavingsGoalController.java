@@ -25,115 +25,72 @@
 package nl.utwente.ing.controller;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import nl.utwente.ing.model.Amounts;
 import nl.utwente.ing.model.SavingsGoal;
 import nl.utwente.ing.model.Session;
-import nl.utwente.ing.model.Transaction;
-import nl.utwente.ing.model.Type;
 import nl.utwente.ing.service.SavingsGoalService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import nl.utwente.ing.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/savingGoals")
 public class SavingsGoalController {
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    /**
+     * The resources of a session from which the balances of its savings goals are computed.
+     */
+    private static final Resource[] RESOURCES = {Resource.savingsGoals, Resource.transactions};
 
     private final SavingsGoalService savingsGoalService;
     private final TransactionService transactionService;
+    private final SessionVersionService sessionVersionService;
+    private final ResponseCache responseCache;
 
     @Autowired
-    public SavingsGoalController(SavingsGoalService savingsGoalService, TransactionService transactionService) {
+    public SavingsGoalController(SavingsGoalService savingsGoalService, TransactionService transactionService,
+                                 SessionVersionService sessionVersionService, ResponseCache responseCache) {
         this.savingsGoalService = savingsGoalService;
         this.transactionService = transactionService;
+        this.sessionVersionService = sessionVersionService;
+        this.responseCache = responseCache;
     }
 
     /**
-     * Returns a list of all the savings goals defined by the current session ID.
+     * Returns a list of all the savings goals defined by the current session ID, including the amount saved towards
+     * each of them so far. The savings goals are cached until the session changes, and are not sent again to clients
+     * that already have them.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID the session ID present in the URL of the request
-     * @return a JSON serialized representation of all savings goals
+     * @param webRequest the request, used to answer when the client already has the current savings goals
+     * @param response the response shown to the user, to which the savings goals are written
      * @see SavingsGoal
      */
     @RequestMapping(value = "", method = RequestMethod.GET, produces = "application/json")
-    public String getSavingsGoals(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                  @RequestParam(value = "session_id", required = false) String querySessionID,
-                                  HttpServletResponse response) {
+    public void getSavingsGoals(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                @RequestParam(value = "session_id", required = false) String querySessionID,
+                                WebRequest webRequest,
+                                HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
-        List<Transaction> transactions = transactionService.findBySessionAsc(session);
-        List<SavingsGoal> savingsGoals = savingsGoalService.findBySession(session);
-
-        long balance = 0;
-
-        try {
-            for (int i = 0; i < transactions.size() - 1; i++) {
-                Transaction transaction = transactions.get(i);
-                Calendar transactionDate = Calendar.getInstance();
-                transactionDate.setTime(DATE_FORMAT.parse(transaction.getDate()));
-
-                if (transaction.getType().equals(Type.withdrawal)) {
-                    balance -= transaction.getAmount();
-                } else {
-                    balance += transaction.getAmount();
-                }
-
-                int monthsPassed = monthsPassed(transaction, transactions.get(i + 1));
-
-                for (int j = 0; j < monthsPassed; j++) {
-                    for (SavingsGoal savingsGoal : savingsGoals) {
-                        Calendar savingsGoalDate = Calendar.getInstance();
-                        savingsGoalDate.setTime(DATE_FORMAT.parse(savingsGoal.getDate()));
-
-                        // This savings goal is not valid yet.
-                        if (transactionDate.before(savingsGoalDate)) {
-                            continue;
-                        }
-
-                        if (balance >= savingsGoal.getMinBalanceRequired() && savingsGoal.getBalance() < savingsGoal.getGoal()) {
-                            balance -= savingsGoal.getSavePerMonth();
-                            savingsGoal.setBalance(savingsGoal.getBalance() + savingsGoal.getSavePerMonth());
-
-                            // In case we went over the goal, we set the balance to the goal and "refund" the difference.
-                            if (savingsGoal.getBalance() > savingsGoal.getGoal()) {
-                                balance += (savingsGoal.getBalance() - savingsGoal.getGoal());
-                                savingsGoal.setBalance(savingsGoal.getGoal());
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (ParseException e) {
-            e.printStackTrace();
-            response.setStatus(500);
-            return null;
+        long version = sessionVersionService.getVersion(session, RESOURCES);
+        if (webRequest.checkNotModified(sessionVersionService.getTag(version))) {
+            return;
         }
 
-        return new GsonBuilder()
-                .registerTypeAdapter(SavingsGoal.class, new SavingsGoalAdapter())
-                .excludeFieldsWithoutExposeAnnotation()
-                .create()
-                .toJson(savingsGoals);
-    }
-
-    private static int monthsPassed(Transaction first, Transaction second) throws ParseException {
-        Calendar start = Calendar.getInstance();
-        start.setTime(DATE_FORMAT.parse(first.getDate()));
-
-        Calendar end = Calendar.getInstance();
-        end.setTime(DATE_FORMAT.parse(second.getDate()));
-
-        int yearDiff = end.get(Calendar.YEAR) - start.get(Calendar.YEAR);
-        int monthDiff = end.get(Calendar.MONTH) - start.get(Calendar.MONTH);
-        return Math.abs((yearDiff * 12) + monthDiff);
+        responseCache.write(response, session, "savingGoals", version,
+                () -> savingsGoalService.findBySession(session));
     }
 
     /**
@@ -142,44 +99,36 @@ public class SavingsGoalController {
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID the session ID present in the URL of the request
-     * @param body the request body containing the JSON representation of the SavingsGoal to add
+     * @param request the request containing the JSON representation of the SavingsGoal to add
      * @param response the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the newly added SavingsGoal
      * @see SavingsGoal
      */
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
-    public String addSavingsGoal(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                 @RequestParam(value = "session_id", required = false) String querySessionID,
-                                 @RequestBody String body,
-                                 HttpServletResponse response) {
+    public void addSavingsGoal(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                               @RequestParam(value = "session_id", required = false) String querySessionID,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            GsonBuilder gsonBuilder = new GsonBuilder();
-            gsonBuilder.registerTypeAdapter(SavingsGoal.class, new SavingsGoalAdapter());
-            Gson gson = gsonBuilder.create();
-
-            SavingsGoal savingsGoal = gson.fromJson(body, SavingsGoal.class);
+            SavingsGoal savingsGoal = JsonCodec.read(request, SavingsGoal.class);
             savingsGoal.setSession(session);
             savingsGoal.setBalance(0);
-            // Set the date to the most recent transaction (now).
-            savingsGoal.setDate(transactionService.findFirstByOrderByDateDesc().getDate());
+            // Set the date to the most recent transaction of the session (now).
+            Long latestDate = transactionService.findLatestDate(session);
+            savingsGoal.setDate(latestDate == null ? System.currentTimeMillis() : latestDate);
 
             if (savingsGoal.getName() == null || savingsGoal.getGoal() == null
                     || savingsGoal.getSavePerMonth() == null) {
                 throw new JsonSyntaxException("SavingsGoal is missing one or more elements");
             }
 
+            SavingsGoal result = savingsGoalService.add(savingsGoal);
             response.setStatus(201);
-            return new GsonBuilder()
-                    .registerTypeAdapter(SavingsGoal.class, new SavingsGoalAdapter())
-                    .excludeFieldsWithoutExposeAnnotation()
-                    .create()
-                    .toJson(savingsGoalService.add(savingsGoal));
+            JsonCodec.write(response, result);
         } catch (JsonSyntaxException e) {
             e.printStackTrace();
             response.setStatus(405);
-            return null;
         }
     }
 
@@ -201,7 +150,9 @@ public class SavingsGoalController {
     }
 }
 
-class SavingsGoalAdapter implements JsonDeserializer<SavingsGoal>, JsonSerializer<SavingsGoal> {
+class SavingsGoalAdapter extends TypeAdapter<SavingsGoal> {
+
+    static final SavingsGoalAdapter INSTANCE = new SavingsGoalAdapter();
 
     /**
      * A custom deserializer for GSON to use to deserialize a SavingsGoal formatted according to the API specification
@@ -209,9 +160,8 @@ class SavingsGoalAdapter implements JsonDeserializer<SavingsGoal>, JsonSerialize
      * used format.
      */
     @Override
-    public SavingsGoal deserialize(JsonElement json, java.lang.reflect.Type type,
-                                   JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-        JsonObject jsonObject = json.getAsJsonObject();
+    public SavingsGoal read(JsonReader in) throws IOException {
+        JsonObject jsonObject = new JsonParser().parse(in).getAsJsonObject();
 
         JsonElement nameElement = jsonObject.get("name");
         JsonElement goalElement = jsonObject.get("goal");
@@ -225,25 +175,15 @@ class SavingsGoalAdapter implements JsonDeserializer<SavingsGoal>, JsonSerialize
 
         String name = nameElement.getAsString();
 
-        Integer goal;
-        if (goalElement.getAsString().contains(".")) {
-            goal = Integer.valueOf(goalElement.getAsString().replace(".", ""));
-        } else {
-            goal = Integer.valueOf(goalElement.getAsString()) * 100;
-        }
-
-        Integer month;
-        if (monthElement.getAsString().contains(".")) {
-            month = Integer.valueOf(monthElement.getAsString().replace(".", ""));
-        } else {
-            month = Integer.valueOf(monthElement.getAsString()) * 100;
-        }
-
-        Integer minBalance;
-        if (minBalanceElement.getAsString().contains(".")) {
-            minBalance = Integer.valueOf(minBalanceElement.getAsString().replace(".", ""));
-        } else {
-            minBalance = Integer.valueOf(minBalanceElement.getAsString()) * 100;
+        int goal;
+        int month;
+        int minBalance;
+        try {
+            goal = Amounts.parseInt(goalElement.getAsString());
+            month = Amounts.parseInt(monthElement.getAsString());
+            minBalance = Amounts.parseInt(minBalanceElement.getAsString());
+        } catch (ParseException e) {
+            throw new JsonParseException("Invalid amount specified");
         }
 
         SavingsGoal savingsGoal = new SavingsGoal();
@@ -260,17 +200,14 @@ class SavingsGoalAdapter implements JsonDeserializer<SavingsGoal>, JsonSerialize
      * to the specification as they are internally stored in a long as cents.
      */
     @Override
-    public JsonElement serialize(SavingsGoal savingsGoal, java.lang.reflect.Type type,
-                                 JsonSerializationContext jsonSerializationContext) {
-        JsonObject object = new JsonObject();
-
-        object.addProperty("id", savingsGoal.getId());
-        object.addProperty("name", savingsGoal.getName());
-        object.addProperty("goal", savingsGoal.getGoal() / 100.0);
-        object.addProperty("savePerMonth", savingsGoal.getSavePerMonth() / 100.0);
-        object.addProperty("minBalanceRequired", savingsGoal.getMinBalanceRequired() / 100.0);
-        object.addProperty("balance", savingsGoal.getBalance() / 100.0);
-
-        return object;
+    public void write(JsonWriter out, SavingsGoal savingsGoal) throws IOException {
+        out.beginObject();
+        out.name("id").value(savingsGoal.getId());
+        out.name("name").value(savingsGoal.getName());
+        out.name("goal").value(savingsGoal.getGoal() / 100.0);
+        out.name("savePerMonth").value(savingsGoal.getSavePerMonth() / 100.0);
+        out.name("minBalanceRequired").value(savingsGoal.getMinBalanceRequired() / 100.0);
+        out.name("balance").value(savingsGoal.getBalance() / 100.0);
+        out.endObject();
     }
 }
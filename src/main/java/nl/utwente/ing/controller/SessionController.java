@@ -65,7 +65,8 @@ public class SessionController {
     }
 
     /**
-     * Checks whether a session is valid, i.e. not null and the session ID exists in the database.
+     * Checks whether a session is valid, i.e. not null and the session ID exists in the database. The result is cached
+     * by the session service, so most checks do not reach the database.
      *
      * @param response  the response shown to the user, necessary to edit the status code of the response
      * @param sessionID the session ID for which to check validity
@@ -77,7 +78,7 @@ public class SessionController {
             return false;
         }
 
-        if (sessionService.findBySessionID(sessionID) != null) {
+        if (sessionService.isValidSession(sessionID)) {
             return true;
         } else {
             response.setStatus(401);
@@ -25,65 +25,127 @@
 package nl.utwente.ing.controller;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import nl.utwente.ing.model.Amounts;
 import nl.utwente.ing.model.Category;
-import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.Dates;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.TransactionCursor;
+import nl.utwente.ing.model.TransactionView;
 import nl.utwente.ing.model.Type;
 import nl.utwente.ing.service.CategoryService;
-import nl.utwente.ing.service.PaymentRequestService;
+import nl.utwente.ing.service.GroupCommitService;
+import nl.utwente.ing.service.SessionVersionService;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import nl.utwente.ing.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 
 @RestController
 @RequestMapping("api/v1/transactions")
 public class TransactionController {
 
+    /**
+     * The response header containing the cursor with which the next page of transactions can be requested.
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-next-cursor";
+
+    /**
+     * The resources of a session from which its transactions are returned.
+     */
+    private static final Resource[] RESOURCES = {Resource.transactions, Resource.categories};
+
     private final TransactionService transactionService;
     private final CategoryService categoryService;
-    private final PaymentRequestService paymentRequestService;
+    private final GroupCommitService groupCommitService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
     public TransactionController(TransactionService transactionService, CategoryService categoryService,
-                                 PaymentRequestService paymentRequestService) {
+                                 GroupCommitService groupCommitService, SessionVersionService sessionVersionService) {
         this.transactionService = transactionService;
         this.categoryService = categoryService;
-        this.paymentRequestService = paymentRequestService;
+        this.groupCommitService = groupCommitService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     /**
-     * Returns a list of all the transactions that are available to the session ID.
+     * Returns a list of all the transactions that are available to the session ID. The transactions are not sent
+     * again to clients that already have the current page.
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param offset          the number of items to skip before starting to collect the result set
      * @param limit           the amount of items to return
      * @param categoryName    the category used to filter the transactions
-     * @return a JSON serialized representation of all transactions
+     * @param after           the cursor of the last transaction of the previous page, used instead of the offset
+     * @param webRequest      the request, used to answer when the client already has the current transactions
+     * @param response        the response shown to the user, necessary to edit the status code of the response
      * @see Transaction
      */
     @RequestMapping(value = "", method = RequestMethod.GET, produces = "application/json")
-    public String getAllTransactions(@RequestHeader(value = "X-session-id", required = false) String headerSessionID,
-                                     @RequestParam(value = "session_id", required = false) String querySessionID,
-                                     @RequestParam(value = "offset", defaultValue = "0") int offset,
-                                     @RequestParam(value = "limit", defaultValue = "20") int limit,
-                                     @RequestParam(value = "category", required = false) String categoryName) {
+    public void getAllTransactions(@RequestHeader(value = "X-session-id", required = false) String headerSessionID,
+                                   @RequestParam(value = "session_id", required = false) String querySessionID,
+                                   @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                   @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                   @RequestParam(value = "category", required = false) String categoryName,
+                                   @RequestParam(value = "after", required = false) String after,
+                                   WebRequest webRequest,
+                                   HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionAdapter());
+        // Every page has its own tag, for which the offset is ignored when a cursor is given, as the page is then
+        // selected by the cursor alone.
+        String page = (after != null ? "after=" + after : "offset=" + offset) + "&limit=" + limit
+                + (categoryName == null ? "" : "&category=" + categoryName);
+        if (webRequest.checkNotModified(sessionVersionService.getTag(sessionVersionService.getVersion(session,
+                RESOURCES)) + "-" + URLEncoder.encode(page, "UTF-8"))) {
+            return;
+        }
+
+        List<TransactionView> transactions;
+        if (after != null) {
+            TransactionCursor cursor;
+            try {
+                cursor = TransactionCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(405);
+                return;
+            }
 
-        if (categoryName != null) {
-            return gsonBuilder.create().toJson(transactionService.findBySessionAndCategoryName(session, categoryName, offset, limit));
+            if (categoryName != null) {
+                transactions = transactionService.findBySessionAndCategoryName(session, categoryName, cursor, limit);
+            } else {
+                transactions = transactionService.findBySession(session, cursor, limit);
+            }
+        } else if (categoryName != null) {
+            transactions = transactionService.findBySessionAndCategoryName(session, categoryName, offset, limit);
         } else {
-            return gsonBuilder.create().toJson(transactionService.findBySession(session, offset, limit));
+            transactions = transactionService.findBySession(session, offset, limit);
         }
+
+        // A full page might be followed by more transactions, which can be requested using the cursor of the last one.
+        if (limit > 0 && transactions.size() == limit) {
+            response.setHeader(NEXT_CURSOR_HEADER, new TransactionCursor(transactions.get(limit - 1)).encode());
+        }
+
+        JsonCodec.write(response, transactions);
     }
 
     /**
@@ -92,24 +154,19 @@ public class TransactionController {
      *
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
-     * @param body            the request body containing the JSON representation of the Transaction to add
+     * @param request         the request containing the JSON representation of the Transaction to add
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the newly added Transaction
      * @see Transaction
      */
     @RequestMapping(value = "", method = RequestMethod.POST, produces = "application/json")
-    public String createTransaction(@RequestHeader(value = "X-session-id", required = false) String headerSessionID,
-                                    @RequestParam(value = "session_id", required = false) String querySessionID,
-                                    @RequestBody String body,
-                                    HttpServletResponse response) {
+    public void createTransaction(@RequestHeader(value = "X-session-id", required = false) String headerSessionID,
+                                  @RequestParam(value = "session_id", required = false) String querySessionID,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            GsonBuilder gsonBuilder = new GsonBuilder();
-            gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionAdapter());
-            Gson gson = gsonBuilder.create();
-
-            Transaction transaction = gson.fromJson(body, Transaction.class);
+            Transaction transaction = JsonCodec.read(request, Transaction.class);
             transaction.setSession(session);
 
             if (transaction.getDate() == null || transaction.getAmount() == null || transaction.getExternalIBAN() ==
@@ -117,22 +174,155 @@ public class TransactionController {
                 throw new JsonSyntaxException("Transaction is missing attributes");
             }
 
-            if (transaction.getType() == Type.deposit) {
-                List<PaymentRequest> requests = paymentRequestService.findValidPaymentRequests(session,
-                        transaction.getDate(), transaction.getAmount());
-                for (PaymentRequest request : requests) {
-                    if (!request.isFilled()) {
-                        transaction.setPaymentRequest(request);
-                        break; // Stop after a match has been found.
+            Transaction result = groupCommitService.add(transaction);
+            response.setStatus(201);
+            JsonCodec.write(response, result);
+        } catch (JsonParseException | NumberFormatException e) {
+            e.printStackTrace();
+            response.setStatus(405);
+        }
+    }
+
+    /**
+     * Creates a batch of new Transactions that are linked to the current session ID. The body is either a JSON array
+     * of transactions or a stream of transactions with one JSON object per line, each formatted according to the
+     * <a href="https://app.swaggerhub.com/apis/djhuistra/INGHonours/1.2.1">API specification</a>. The transactions
+     * are validated while the body is read, after which all valid transactions are added in a single database
+     * transaction, while invalid transactions are reported without affecting the others. A body that can not be read
+     * as a whole, such as a malformed array, is rejected without adding any transaction.
+     *
+     * @param headerSessionID the session ID present in the header of the request
+     * @param querySessionID  the session ID present in the URL of the request
+     * @param request         the request containing the JSON representations of the Transactions to add
+     * @param response        the response shown to the user, to which a JSON array containing the ID or the error of
+     *                        every transaction is written, in the order of the request
+     * @see Transaction
+     */
+    @RequestMapping(value = "/bulk", method = RequestMethod.POST, produces = "application/json")
+    public void createTransactions(@RequestHeader(value = "X-session-id", required = false) String headerSessionID,
+                                   @RequestParam(value = "session_id", required = false) String querySessionID,
+                                   HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
+
+        BoundedReader body = JsonCodec.reader(request, JsonCodec.MAX_BULK_SIZE, JsonCodec.MAX_ITEM_SIZE);
+        BufferedReader reader = new BufferedReader(body);
+        BulkRequest bulkRequest = new BulkRequest();
+
+        try {
+            if (startsWith(reader, '[')) {
+                JsonReader jsonReader = new JsonReader(reader);
+                jsonReader.setLenient(true);
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    body.startItem();
+                    bulkRequest.add(new JsonParser().parse(jsonReader));
+                }
+                jsonReader.endArray();
+
+                if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new MalformedJsonException("Content after the array of transactions");
+                }
+            } else {
+                // Every non-empty line contains a single transaction, which is parsed separately so that one invalid
+                // line does not reject the others.
+                body.startItem();
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.trim().isEmpty()) {
+                        bulkRequest.add(parseElement(line));
                     }
+                    body.startItem();
                 }
             }
+        } catch (JsonParseException | MalformedJsonException | EOFException e) {
+            // The rest of a malformed array can not be read, so none of the transactions are added.
+            response.setStatus(405);
+            return;
+        }
 
-            response.setStatus(201);
-            return gsonBuilder.create().toJson(transactionService.add(transaction));
-        } catch (JsonParseException | NumberFormatException e) {
-            e.printStackTrace();
+        if (bulkRequest.errors.isEmpty()) {
             response.setStatus(405);
+            return;
+        }
+
+        transactionService.addAll(session, bulkRequest.transactions);
+        response.setStatus(bulkRequest.transactions.size() == bulkRequest.errors.size() ? 201 : 200);
+
+        JsonWriter out = JsonCodec.writer(response);
+        out.beginArray();
+
+        // The transactions were added in the order of the request, so their IDs fill the results without an error.
+        Iterator<Transaction> added = bulkRequest.transactions.iterator();
+        for (int i = 0; i < bulkRequest.errors.size(); i++) {
+            out.beginObject();
+            out.name("index").value(i);
+            if (bulkRequest.errors.get(i) == null) {
+                out.name("id").value(added.next().getId());
+            } else {
+                out.name("error").value(bulkRequest.errors.get(i));
+            }
+            out.endObject();
+        }
+
+        out.endArray();
+        out.flush();
+    }
+
+    /**
+     * Returns whether the first character of the reader that is not whitespace is the given character. Only the
+     * whitespace is consumed.
+     */
+    private static boolean startsWith(BufferedReader reader, char expected) throws IOException {
+        int c;
+        do {
+            reader.mark(1);
+            c = reader.read();
+        } while (c != -1 && Character.isWhitespace(c));
+
+        reader.reset();
+        return c == expected;
+    }
+
+    /**
+     * The transactions of a bulk request that are read so far. Only the valid transactions and the error of every
+     * transaction are kept, of which the error of a valid transaction is null.
+     */
+    private static class BulkRequest {
+
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Adds the transaction represented by an element of the request to the valid transactions, or the reason why
+         * it is not valid to the errors.
+         */
+        void add(JsonElement element) {
+            try {
+                if (element == null) {
+                    throw new JsonSyntaxException("Transaction is not valid JSON");
+                }
+
+                Transaction transaction = JsonCodec.GSON.fromJson(element, Transaction.class);
+                if (transaction == null || transaction.getDate() == null || transaction.getAmount() == null
+                        || transaction.getExternalIBAN() == null || transaction.getType() == null) {
+                    throw new JsonSyntaxException("Transaction is missing attributes");
+                }
+
+                transactions.add(transaction);
+                errors.add(null);
+            } catch (JsonParseException | NumberFormatException | IllegalStateException e) {
+                errors.add(e.getMessage() == null ? "Invalid transaction" : e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parses a single line of a transaction stream, returning null in case the line is not valid JSON.
+     */
+    private static JsonElement parseElement(String line) {
+        try {
+            return new JsonParser().parse(line);
+        } catch (JsonParseException e) {
             return null;
         }
     }
@@ -144,21 +334,18 @@ public class TransactionController {
      * @param querySessionID  the session ID present in the URL of the request
      * @param transactionID   the transaction ID corresponding to the transaction to return
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the specified Transaction
      * @see Transaction
      */
     @RequestMapping(value = "/{transactionId}", method = RequestMethod.GET, produces = "application/json")
-    public String getTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                 @RequestParam(value = "session_id", required = false) String querySessionID,
-                                 @PathVariable("transactionId") int transactionID,
-                                 HttpServletResponse response) {
+    public void getTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                               @RequestParam(value = "session_id", required = false) String querySessionID,
+                               @PathVariable("transactionId") int transactionID,
+                               HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionAdapter());
 
-        Transaction result = transactionService.findByIdAndSession(transactionID, session);
+        TransactionView result = transactionService.findViewByIdAndSession(transactionID, session);
         response.setStatus(result == null ? 404 : 200);
-        return gsonBuilder.create().toJson(result);
+        JsonCodec.write(response, result);
     }
 
     /**
@@ -167,25 +354,20 @@ public class TransactionController {
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param transactionID   the transaction ID corresponding to the transaction to update
-     * @param body            the request body containing the JSON representation of the Transaction to update
+     * @param request         the request containing the JSON representation of the Transaction to update
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a JSON serialized representation of the updated Transaction
      * @see Transaction
      */
     @RequestMapping(value = "/{transactionId}", method = RequestMethod.PUT, produces = "application/json")
-    public String updateTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                    @RequestParam(value = "session_id", required = false) String querySessionID,
-                                    @PathVariable("transactionId") int transactionID,
-                                    @RequestBody String body,
-                                    HttpServletResponse response) {
+    public void updateTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                  @RequestParam(value = "session_id", required = false) String querySessionID,
+                                  @PathVariable("transactionId") int transactionID,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            GsonBuilder gsonBuilder = new GsonBuilder();
-            gsonBuilder.registerTypeAdapter(Transaction.class, new TransactionAdapter());
-            Gson gson = gsonBuilder.create();
-
-            Transaction transaction = gson.fromJson(body, Transaction.class);
+            Transaction transaction = JsonCodec.read(request, Transaction.class);
             transaction.setId(transactionID);
             transaction.setSession(session);
 
@@ -195,15 +377,13 @@ public class TransactionController {
             }
 
             if (transactionService.update(transaction) == 1) {
-                return getTransaction(headerSessionID, querySessionID, transactionID, response);
+                getTransaction(headerSessionID, querySessionID, transactionID, response);
             } else {
                 response.setStatus(404);
-                return null;
             }
         } catch (JsonParseException | NumberFormatException e) {
             e.printStackTrace();
             response.setStatus(405);
-            return null;
         }
     }
 
@@ -230,42 +410,40 @@ public class TransactionController {
      * @param headerSessionID the session ID present in the header of the request
      * @param querySessionID  the session ID present in the URL of the request
      * @param transactionID   the transaction ID corresponding to the transaction to update
-     * @param body            the request body containing the JSON representation of the Category to assign
+     * @param request         the request containing the JSON representation of the Category to assign
      * @param response        the response shown to the user, necessary to edit the status code of the response
-     * @return a serialized representation of the newly added Transaction
      * @see Transaction
      */
     @RequestMapping(value = "/{transactionId}/category", method = RequestMethod.PATCH, produces = "application/json")
-    public String assignCategoryToTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
-                                              @RequestParam(value = "session_id", required = false) String querySessionID,
-                                              @PathVariable("transactionId") int transactionID,
-                                              @RequestBody String body,
-                                              HttpServletResponse response) {
+    public void assignCategoryToTransaction(@RequestHeader(value = "X-session-ID", required = false) String headerSessionID,
+                                            @RequestParam(value = "session_id", required = false) String querySessionID,
+                                            @PathVariable("transactionId") int transactionID,
+                                            HttpServletRequest request,
+                                            HttpServletResponse response) throws IOException {
         Session session = new Session(headerSessionID == null ? querySessionID : headerSessionID);
 
         try {
-            int categoryId = new Gson().fromJson(body, JsonObject.class).get("category_id").getAsInt();
+            int categoryId = JsonCodec.read(request, JsonObject.class).get("category_id").getAsInt();
             Transaction transaction = transactionService.findByIdAndSession(transactionID, session);
             Category category = categoryService.findByIdAndSession(categoryId, session);
 
             if (category == null || transaction == null) {
                 response.setStatus(404);
-                return null;
+                return;
             }
 
             transactionService.updateCategory(transaction, category);
-            return getTransaction(headerSessionID, querySessionID, transactionID, response);
+            getTransaction(headerSessionID, querySessionID, transactionID, response);
         } catch (NullPointerException | NumberFormatException e) {
             // Body was not formatted according to API specification, treat as if no ID was specified.
             response.setStatus(404);
-            return null;
         }
     }
 }
 
-class TransactionAdapter implements JsonDeserializer<Transaction>, JsonSerializer<Transaction> {
+class TransactionAdapter extends TypeAdapter<Transaction> {
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    static final TransactionAdapter INSTANCE = new TransactionAdapter();
 
     /**
      * A custom deserializer for GSON to use to deserialize a Transaction formatted according to the API specification
@@ -273,9 +451,8 @@ class TransactionAdapter implements JsonDeserializer<Transaction>, JsonSerialize
      * used format.
      */
     @Override
-    public Transaction deserialize(JsonElement json, java.lang.reflect.Type type,
-                                   JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-        JsonObject jsonObject = json.getAsJsonObject();
+    public Transaction read(JsonReader in) throws IOException {
+        JsonObject jsonObject = new JsonParser().parse(in).getAsJsonObject();
 
         JsonElement dateElement = jsonObject.get("date");
         JsonElement amountElement = jsonObject.get("amount");
@@ -287,24 +464,31 @@ class TransactionAdapter implements JsonDeserializer<Transaction>, JsonSerialize
             throw new JsonParseException("Missing one or more required fields");
         }
 
-        String date;
+        // Objects and arrays have no value to read, of which reading the value would fail with an exception.
+        if (!dateElement.isJsonPrimitive() || !amountElement.isJsonPrimitive() || !typeElement.isJsonPrimitive()
+                || !ibanElement.isJsonPrimitive()) {
+            throw new JsonParseException("Invalid value of one or more required fields");
+        }
+
+        long date;
         try {
-            date = dateElement.getAsString();
-            // Check whether the date was formatted properly by parsing it.
-            DATE_FORMAT.parse(date);
+            date = Dates.parse(dateElement.getAsString());
         } catch (ParseException e) {
             throw new JsonParseException("Invalid date specified");
         }
 
-        Long amount;
-        if (amountElement.getAsString().contains(".")) {
-            amount = Long.valueOf(amountElement.getAsString().replace(".", ""));
-        } else {
-            amount = Long.valueOf(amountElement.getAsString()) * 100;
+        long amount;
+        try {
+            amount = Amounts.parse(amountElement.getAsString());
+        } catch (ParseException e) {
+            throw new JsonParseException("Invalid amount specified");
         }
 
         // Description is not present in earlier versions of the API so might be left out, check for null for safety.
         JsonElement descriptionElement = jsonObject.get("description");
+        if (descriptionElement != null && !descriptionElement.isJsonPrimitive()) {
+            throw new JsonParseException("Invalid description specified");
+        }
         String description = (descriptionElement == null) ? null : descriptionElement.getAsString();
 
         String externalIBAN = ibanElement.getAsString();
@@ -316,9 +500,17 @@ class TransactionAdapter implements JsonDeserializer<Transaction>, JsonSerialize
         Type transactionType = Type.valueOf(typeString);
 
         Category category = null;
-        if (json.getAsJsonObject().has("category")) {
-            category = new Category(jsonObject.get("category").getAsJsonObject().get("id").getAsInt(),
-                    jsonObject.get("category").getAsJsonObject().get("name").getAsString());
+        JsonElement categoryElement = jsonObject.get("category");
+        if (categoryElement != null && !categoryElement.isJsonNull()) {
+            JsonElement categoryIdElement = categoryElement.isJsonObject()
+                    ? categoryElement.getAsJsonObject().get("id") : null;
+            JsonElement categoryNameElement = categoryElement.isJsonObject()
+                    ? categoryElement.getAsJsonObject().get("name") : null;
+            if (categoryIdElement == null || !categoryIdElement.isJsonPrimitive()
+                    || categoryNameElement == null || !categoryNameElement.isJsonPrimitive()) {
+                throw new JsonParseException("Invalid category specified");
+            }
+            category = new Category(categoryIdElement.getAsInt(), categoryNameElement.getAsString());
         }
 
         return new Transaction(null, date, amount, description, externalIBAN, transactionType, category);
@@ -326,32 +518,45 @@ class TransactionAdapter implements JsonDeserializer<Transaction>, JsonSerialize
 
     /**
      * A custom serializer for GSON to use to serialize a Transaction into the proper JSON representation formatted
+     * according to the API, which is the same as the representation of its read-only view.
+     */
+    @Override
+    public void write(JsonWriter out, Transaction transaction) throws IOException {
+        TransactionViewSerializer.INSTANCE.write(out, new TransactionView(transaction));
+    }
+}
+
+class TransactionViewSerializer implements JsonCodec.Serializer<TransactionView> {
+
+    static final TransactionViewSerializer INSTANCE = new TransactionViewSerializer();
+
+    /**
+     * A custom serializer for GSON to use to serialize a TransactionView into the proper JSON representation formatted
      * according to the API. Does not serialize null values unlike the default serializer. Formats the amount according
      * to the specification as they are internally stored in a long as cents.
      */
     @Override
-    public JsonElement serialize(Transaction transaction, java.lang.reflect.Type type,
-                                 JsonSerializationContext jsonSerializationContext) {
-        JsonObject object = new JsonObject();
+    public void write(JsonWriter out, TransactionView transaction) throws IOException {
+        out.beginObject();
 
-        object.addProperty("id", transaction.getId());
-        object.addProperty("date", transaction.getDate());
-        object.addProperty("amount", transaction.getAmount() / 100.0);
+        out.name("id").value(transaction.getId());
+        out.name("date").value(transaction.getDate());
+        out.name("amount").value(transaction.getAmount() / 100.0);
 
         if (transaction.getDescription() != null) {
-            object.addProperty("description", transaction.getDescription());
+            out.name("description").value(transaction.getDescription());
         }
 
-        object.addProperty("externalIBAN", transaction.getExternalIBAN());
-        object.addProperty("type", transaction.getType().toString());
+        out.name("externalIBAN").value(transaction.getExternalIBAN());
+        out.name("type").value(transaction.getType().toString());
 
-        if (transaction.getCategory() != null) {
-            JsonObject categoryObject = new JsonObject();
-            categoryObject.addProperty("id", transaction.getCategory().getId());
-            categoryObject.addProperty("name", transaction.getCategory().getName());
-            object.add("category", categoryObject);
+        if (transaction.getCategoryId() != null) {
+            out.name("category").beginObject();
+            out.name("id").value(transaction.getCategoryId());
+            out.name("name").value(transaction.getCategoryName());
+            out.endObject();
         }
 
-        return object;
+        out.endObject();
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import java.text.ParseException;
+
+/**
+ * Converts monetary amounts as used by the API, which are decimal numbers with at most two significant decimals, to
+ * the number of cents, which is how amounts are stored and computed with internally.
+ */
+public final class Amounts {
+
+    private Amounts() {}
+
+    /**
+     * Parses an amount such as <code>12</code>, <code>-12.5</code> or <code>12.50</code> into cents without creating
+     * any intermediate objects. Decimals after the second one are only accepted if they are zero, as they can not be
+     * represented in cents.
+     *
+     * @param amount an amount formatted according to the API specification
+     * @return the amount in cents
+     * @throws ParseException if the amount is not a decimal number, has more than two significant decimals or does not
+     *                        fit in a long when converted to cents
+     */
+    public static long parse(CharSequence amount) throws ParseException {
+        int length = amount.length();
+        int i = 0;
+
+        boolean negative = false;
+        if (length > 0 && (amount.charAt(0) == '-' || amount.charAt(0) == '+')) {
+            negative = amount.charAt(0) == '-';
+            i++;
+        }
+
+        // The amount is accumulated as a negative number, as its range is larger than that of positive numbers.
+        long cents = 0;
+        int digits = 0;
+        for (; i < length && amount.charAt(i) != '.'; i++, digits++) {
+            cents = append(cents, digit(amount, i));
+        }
+
+        if (digits == 0) {
+            throw new ParseException("Amount has no integer part: " + amount, i);
+        }
+
+        int decimals = 0;
+        if (i < length) {
+            // Skip the decimal point, which must be followed by at least one decimal.
+            if (++i == length) {
+                throw new ParseException("Amount has no decimals after the decimal point: " + amount, i);
+            }
+
+            for (; i < length; i++, decimals++) {
+                int digit = digit(amount, i);
+                if (decimals < 2) {
+                    cents = append(cents, digit);
+                } else if (digit != 0) {
+                    throw new ParseException("Amount has more than two significant decimals: " + amount, i);
+                }
+            }
+        }
+
+        for (; decimals < 2; decimals++) {
+            cents = append(cents, 0);
+        }
+
+        if (!negative) {
+            if (cents == Long.MIN_VALUE) {
+                throw new ParseException("Amount is too large: " + amount, 0);
+            }
+            cents = -cents;
+        }
+        return cents;
+    }
+
+    /**
+     * Parses an amount into cents like {@link #parse(CharSequence)}, for amounts that are stored in an int.
+     *
+     * @param amount an amount formatted according to the API specification
+     * @return the amount in cents
+     * @throws ParseException if the amount is not valid or does not fit in an int when converted to cents
+     */
+    public static int parseInt(CharSequence amount) throws ParseException {
+        long cents = parse(amount);
+        if (cents < Integer.MIN_VALUE || cents > Integer.MAX_VALUE) {
+            throw new ParseException("Amount is too large: " + amount, 0);
+        }
+        return (int) cents;
+    }
+
+    private static int digit(CharSequence amount, int index) throws ParseException {
+        char c = amount.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new ParseException("Amount contains an invalid character: " + amount, index);
+        }
+        return c - '0';
+    }
+
+    /**
+     * Appends a digit to a negative number, failing when the result no longer fits in a long.
+     */
+    private static long append(long negative, int digit) throws ParseException {
+        if (negative < (Long.MIN_VALUE + digit) / 10) {
+            throw new ParseException("Amount is too large", 0);
+        }
+        return negative * 10 - digit;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The pre-aggregated balance movement of a session within a single interval, such as one day or one month. Balances
+ * are taken from the ledger, so each value is the balance directly after a transaction in the interval.
+ */
+@Entity
+@Table(name = "balancerollups")
+@IdClass(BalanceRollup.Key.class)
+public class BalanceRollup {
+
+    @Id
+    @Column(name = "session_id")
+    private String sessionID;
+
+    @Id
+    private String interval;
+
+    @Id
+    @Column(name = "bucket_start")
+    private long bucketStart;
+
+    private long open;
+    private long high;
+    private long low;
+    private long close;
+    private long volume;
+
+    public BalanceRollup() {}
+
+    public BalanceRollup(String sessionID, String interval, long bucketStart, long balance) {
+        this.sessionID = sessionID;
+        this.interval = interval;
+        this.bucketStart = bucketStart;
+        this.open = balance;
+        this.high = balance;
+        this.low = balance;
+        this.close = balance;
+    }
+
+    public BalanceRollup(String sessionID, String interval, long bucketStart, long open, long high, long low,
+                         long close, long volume) {
+        this.sessionID = sessionID;
+        this.interval = interval;
+        this.bucketStart = bucketStart;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * Adds the entry of a transaction that was processed after all transactions already part of this rollup.
+     */
+    public void add(LedgerEntry entry) {
+        high = Math.max(high, entry.getBalance());
+        low = Math.min(low, entry.getBalance());
+        close = entry.getBalance();
+        volume += entry.getAmount() + entry.getSavings();
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getOpen() {
+        return open;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getClose() {
+        return close;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public static class Key implements Serializable {
+        private String sessionID;
+        private String interval;
+        private long bucketStart;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bucketStart == key.bucketStart && Objects.equals(sessionID, key.sessionID)
+                    && Objects.equals(interval, key.interval);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionID, interval, bucketStart);
+        }
+    }
+}
@@ -25,6 +25,8 @@
 package nl.utwente.ing.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.gson.annotations.Expose;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -34,14 +36,16 @@ public class Category {
 
     @Id
     @Column(name = "category_id")
-    @GeneratedValue(generator="sqlite")
-    @TableGenerator(name="sqlite", table="sqlite_sequence", pkColumnName="name", valueColumnName="seq", pkColumnValue="categories")
+    @GeneratedValue(generator = "block")
+    @GenericGenerator(name = "block", strategy = "nl.utwente.ing.repository.BlockIdGenerator")
+    @Expose
     private Integer id;
 
     @Column(name = "name")
+    @Expose
     private String name;
 
-    @ManyToOne(targetEntity = Session.class)
+    @ManyToOne(targetEntity = Session.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     @JsonIgnore
     private Session session;
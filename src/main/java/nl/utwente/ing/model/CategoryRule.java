@@ -26,6 +26,7 @@ package nl.utwente.ing.model;
 
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -35,8 +36,8 @@ public class CategoryRule {
 
     @Id
     @Column(name = "categoryrule_id")
-    @GeneratedValue(generator="sqlite")
-    @TableGenerator(name="sqlite", table="sqlite_sequence", pkColumnName="name", valueColumnName="seq", pkColumnValue="categoryrules")
+    @GeneratedValue(generator = "block")
+    @GenericGenerator(name = "block", strategy = "nl.utwente.ing.repository.BlockIdGenerator")
     @Expose
     private Integer id;
 
@@ -55,7 +56,7 @@ public class CategoryRule {
     @Expose
     private Integer categoryId;
 
-    @ManyToOne(targetEntity = Category.class)
+    @ManyToOne(targetEntity = Category.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
@@ -63,7 +64,7 @@ public class CategoryRule {
     @Expose
     private boolean applyOnHistory;
 
-    @ManyToOne(targetEntity = Session.class)
+    @ManyToOne(targetEntity = Session.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     private Session session;
 
@@ -80,7 +81,7 @@ public class CategoryRule {
      * @param categoryId Category to assign to the transaction if it matches the specified fields.
      * @param applyOnHistory determines whether this CategoryRule should be retroactively applied to older Transactions.
      */
-    public CategoryRule(Integer id, String description, String iban, String type, int categoryId, boolean applyOnHistory) {
+    public CategoryRule(Integer id, String description, String iban, String type, Integer categoryId, boolean applyOnHistory) {
         this.id = id;
         this.description = description;
         this.iban = iban;
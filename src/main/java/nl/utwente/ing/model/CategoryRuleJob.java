@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * The progress of applying a CategoryRule to the existing transactions of its session, which happens in the
+ * background after the rule has been created. The job is cancelled in case the rule is changed or deleted before it
+ * has been applied to all transactions.
+ */
+public class CategoryRuleJob {
+
+    public enum Status {
+        pending, running, completed, failed, cancelled
+    }
+
+    private final int categoryRuleId;
+    private final String sessionID;
+
+    @Expose
+    private volatile Status status = Status.pending;
+
+    @Expose
+    private volatile int processed;
+
+    @Expose
+    private volatile int total;
+
+    private volatile long finishedAt;
+
+    public CategoryRuleJob(int categoryRuleId, String sessionID) {
+        this.categoryRuleId = categoryRuleId;
+        this.sessionID = sessionID;
+    }
+
+    public int getCategoryRuleId() {
+        return categoryRuleId;
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void start(int total) {
+        this.total = total;
+        this.status = Status.running;
+    }
+
+    public void progress(int processed) {
+        this.processed += processed;
+    }
+
+    public void finish(Status status) {
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.completed || status == Status.failed || status == Status.cancelled;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Converts between the date format used by the API and the number of milliseconds since the epoch, which is how dates
+ * are stored, sorted and compared internally. All dates are in UTC, as indicated by the 'Z' suffix of the format.
+ */
+public final class Dates {
+
+    public static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    /**
+     * SimpleDateFormat is not thread-safe, so every thread gets its own instance.
+     */
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+        dateFormat.setTimeZone(TIME_ZONE);
+        return dateFormat;
+    });
+
+    private Dates() {}
+
+    /**
+     * Parses a date formatted exactly according to the API specification without creating any intermediate objects.
+     * Any other date is parsed leniently by SimpleDateFormat, which for instance accepts fields with fewer digits or
+     * rolls a day of the month that is out of range over into the next month.
+     *
+     * @param date a date formatted according to the API specification
+     * @return the number of milliseconds since the epoch
+     * @throws ParseException if the date is not formatted according to the API specification
+     */
+    public static long parse(String date) throws ParseException {
+        long epoch = parseExact(date);
+        return epoch != Long.MIN_VALUE ? epoch : DATE_FORMAT.get().parse(date).getTime();
+    }
+
+    /**
+     * Returns the date of the format <code>yyyy-MM-ddTHH:mm:ss.SSSZ</code> in milliseconds since the epoch, or
+     * Long.MIN_VALUE in case it is not of that format or any of its fields is out of range. Years before 1600 are not
+     * parsed either, as SimpleDateFormat uses the Julian calendar for dates before the Gregorian calendar was adopted.
+     */
+    private static long parseExact(String date) {
+        if (date.length() != 24 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                || date.charAt(13) != ':' || date.charAt(16) != ':' || date.charAt(19) != '.'
+                || date.charAt(23) != 'Z') {
+            return Long.MIN_VALUE;
+        }
+
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 2);
+        int day = digits(date, 8, 2);
+        int hour = digits(date, 11, 2);
+        int minute = digits(date, 14, 2);
+        int second = digits(date, 17, 2);
+        int millis = digits(date, 20, 3);
+        if (year < 1600 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+                || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        long seconds = daysSinceEpoch(year, month, day) * 86400 + hour * 3600 + minute * 60 + second;
+        return seconds * 1000 + millis;
+    }
+
+    /**
+     * Returns the number formed by the digits in the given range of the date, or -1 if any of them is not a digit.
+     */
+    private static int digits(String date, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Returns the number of days between the epoch and the given date of the Gregorian calendar, counting years from
+     * March so that the leap day is the last day of a year.
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * @param epoch the number of milliseconds since the epoch
+     * @return the date formatted according to the API specification
+     */
+    public static String format(long epoch) {
+        return DATE_FORMAT.get().format(new Date(epoch));
+    }
+
+    /**
+     * @param epoch the number of milliseconds since the epoch
+     * @return a new calendar set to the given date, of which the weeks start on Monday regardless of the locale
+     */
+    public static Calendar toCalendar(long epoch) {
+        Calendar calendar = Calendar.getInstance(TIME_ZONE, Locale.ROOT);
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        calendar.setTimeInMillis(epoch);
+        return calendar;
+    }
+
+    /**
+     * Returns the number of calendar months between both dates, regardless of the day of the month.
+     */
+    public static int monthsPassed(long start, long end) {
+        Calendar startCalendar = toCalendar(start);
+        Calendar endCalendar = toCalendar(end);
+
+        int yearDiff = endCalendar.get(Calendar.YEAR) - startCalendar.get(Calendar.YEAR);
+        int monthDiff = endCalendar.get(Calendar.MONTH) - startCalendar.get(Calendar.MONTH);
+        return Math.abs((yearDiff * 12) + monthDiff);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import java.util.Calendar;
+
+/**
+ * The intervals in which the balance history can be requested, each backed by its own set of balance rollups.
+ */
+public enum Interval {
+    hour(Calendar.HOUR_OF_DAY),
+    day(Calendar.DAY_OF_YEAR),
+    week(Calendar.WEEK_OF_YEAR),
+    month(Calendar.MONTH),
+    year(Calendar.YEAR);
+
+    private final int calendarField;
+
+    Interval(int calendarField) {
+        this.calendarField = calendarField;
+    }
+
+    /**
+     * @return the Calendar field to use when moving between consecutive intervals
+     */
+    public int getCalendarField() {
+        return calendarField;
+    }
+
+    /**
+     * Returns a copy of the given calendar that is moved back to the start of the interval containing it.
+     *
+     * @param calendar the calendar of which to find the start of the interval
+     * @return a new calendar set to the start of the interval
+     */
+    public Calendar getStart(Calendar calendar) {
+        Calendar start = (Calendar) calendar.clone();
+        start.set(Calendar.MILLISECOND, 0);
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MINUTE, 0);
+
+        if (this != hour) {
+            start.set(Calendar.HOUR_OF_DAY, 0);
+        }
+
+        switch (this) {
+            case week:
+                // Weeks start on Monday regardless of the locale, as the start of every week is persisted.
+                start.setFirstDayOfWeek(Calendar.MONDAY);
+                start.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+                break;
+            case month:
+                start.set(Calendar.DAY_OF_MONTH, 1);
+                break;
+            case year:
+                start.set(Calendar.DAY_OF_YEAR, 1);
+                break;
+            default:
+                break;
+        }
+
+        return start;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A row of the running-balance ledger of a session. Every transaction has exactly one ledger entry which stores the
+ * balance of the account directly after that transaction was processed, including the savings that were set aside
+ * since the previous transaction.
+ */
+@Entity
+@Table(name = "balanceledger")
+public class LedgerEntry {
+
+    @Id
+    @Column(name = "transaction_id")
+    private Integer transactionId;
+
+    @Column(name = "session_id")
+    private String sessionID;
+
+    private long date;
+
+    private long balance;
+
+    private long amount;
+
+    private long savings;
+
+    public LedgerEntry() {}
+
+    public LedgerEntry(Integer transactionId, String sessionID, long date, long balance, long amount, long savings) {
+        this.transactionId = transactionId;
+        this.sessionID = sessionID;
+        this.date = date;
+        this.balance = balance;
+        this.amount = amount;
+        this.savings = savings;
+    }
+
+    public Integer getTransactionId() {
+        return transactionId;
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getSavings() {
+        return savings;
+    }
+}
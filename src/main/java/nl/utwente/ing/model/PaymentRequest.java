@@ -27,29 +27,34 @@ package nl.utwente.ing.model;
 import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
 import java.util.List;
+import org.hibernate.annotations.GenericGenerator;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
-import javax.persistence.TableGenerator;
 
 @Entity
 @Table(name = "paymentrequests")
 public class PaymentRequest {
 
     @Id
-    @GeneratedValue(generator="sqlite")
-    @TableGenerator(name="sqlite", table="sqlite_sequence", pkColumnName="name", valueColumnName="seq", pkColumnValue="paymentrequests")
+    @GeneratedValue(generator = "block")
+    @GenericGenerator(name = "block", strategy = "nl.utwente.ing.repository.BlockIdGenerator")
     private Integer id;
 
     @SerializedName("due_date")
     @Column(name = "due_date")
     private String dueDate;
 
+    @Column(name = "due_date_epoch")
+    private Long dueDateEpoch;
+
     @SerializedName("number_of_requests")
     @Column(name = "number_of_requests")
     private int requestCount;
@@ -60,15 +65,16 @@ public class PaymentRequest {
     @OneToMany(mappedBy = "paymentRequest")
     private List<Transaction> transactions;
 
-    @ManyToOne(targetEntity = Session.class)
+    @ManyToOne(targetEntity = Session.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     private Session session;
 
     public PaymentRequest() {}
 
-    public PaymentRequest(String description, String dueDate, long amount, int requestCount) {
+    public PaymentRequest(String description, long dueDate, long amount, int requestCount) {
         this.description = description;
-        this.dueDate = dueDate;
+        this.dueDateEpoch = dueDate;
+        this.dueDate = Dates.format(dueDate);
         this.amount = amount;
         this.requestCount = requestCount;
     }
@@ -81,6 +87,10 @@ public class PaymentRequest {
         return dueDate;
     }
 
+    public Long getDueDateEpoch() {
+        return dueDateEpoch;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -105,6 +115,10 @@ public class PaymentRequest {
         }
     }
 
+    public Session getSession() {
+        return session;
+    }
+
     public void setSession(Session session) {
         this.session = session;
     }
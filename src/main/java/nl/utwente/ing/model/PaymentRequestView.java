@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable, read-only row of a PaymentRequest together with the transactions that paid it. Unlike a
+ * PaymentRequest, it is not managed by the persistence context, so it is neither tracked nor checked for changes.
+ */
+public class PaymentRequestView {
+
+    private final int id;
+    private final String description;
+    private final String dueDate;
+    private final long amount;
+    private final int requestCount;
+    private final List<TransactionView> transactions;
+
+    public PaymentRequestView(int id, String description, String dueDate, long amount, int requestCount) {
+        this(id, description, dueDate, amount, requestCount, Collections.emptyList());
+    }
+
+    public PaymentRequestView(int id, String description, String dueDate, long amount, int requestCount,
+                              List<TransactionView> transactions) {
+        this.id = id;
+        this.description = description;
+        this.dueDate = dueDate;
+        this.amount = amount;
+        this.requestCount = requestCount;
+        this.transactions = Collections.unmodifiableList(transactions);
+    }
+
+    public PaymentRequestView(PaymentRequest paymentRequest) {
+        this(paymentRequest.getId(), paymentRequest.getDescription(), paymentRequest.getDueDate(),
+                paymentRequest.getAmount(), paymentRequest.getRequestCount(),
+                paymentRequest.getTransactions().stream().map(TransactionView::new).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns a copy of this view which is paid by the given transactions.
+     */
+    public PaymentRequestView withTransactions(List<TransactionView> transactions) {
+        return new PaymentRequestView(id, description, dueDate, amount, requestCount, transactions);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    public List<TransactionView> getTransactions() {
+        return transactions;
+    }
+
+    public boolean isFilled() {
+        return transactions.size() == requestCount;
+    }
+}
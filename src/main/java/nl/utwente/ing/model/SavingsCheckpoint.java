@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The amount saved towards a savings goal directly after a transaction at which savings were set aside. Together with
+ * the balance in the ledger entry of the same transaction, the checkpoints of a transaction are all the state that is
+ * needed to continue the ledger after that transaction.
+ */
+@Entity
+@Table(name = "savingscheckpoints")
+@IdClass(SavingsCheckpoint.Key.class)
+public class SavingsCheckpoint {
+
+    @Id
+    @Column(name = "transaction_id")
+    private Integer transactionId;
+
+    @Id
+    @Column(name = "savings_goal_id")
+    private Integer savingsGoalId;
+
+    @Column(name = "session_id")
+    private String sessionID;
+
+    private long date;
+
+    private long saved;
+
+    public SavingsCheckpoint() {}
+
+    public SavingsCheckpoint(Integer transactionId, Integer savingsGoalId, String sessionID, long date, long saved) {
+        this.transactionId = transactionId;
+        this.savingsGoalId = savingsGoalId;
+        this.sessionID = sessionID;
+        this.date = date;
+        this.saved = saved;
+    }
+
+    public Integer getTransactionId() {
+        return transactionId;
+    }
+
+    public Integer getSavingsGoalId() {
+        return savingsGoalId;
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public long getSaved() {
+        return saved;
+    }
+
+    public static class Key implements Serializable {
+        private Integer transactionId;
+        private Integer savingsGoalId;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(transactionId, key.transactionId) && Objects.equals(savingsGoalId, key.savingsGoalId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(transactionId, savingsGoalId);
+        }
+    }
+}
@@ -25,6 +25,7 @@
 package nl.utwente.ing.model;
 
 import com.google.gson.annotations.Expose;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -33,8 +34,8 @@ import javax.persistence.*;
 public class SavingsGoal {
 
     @Id
-    @GeneratedValue(generator="sqlite")
-    @TableGenerator(name="sqlite", table="sqlite_sequence", pkColumnName="name", valueColumnName="seq", pkColumnValue="savingsgoals")
+    @GeneratedValue(generator = "block")
+    @GenericGenerator(name = "block", strategy = "nl.utwente.ing.repository.BlockIdGenerator")
     @Expose
     private Integer id;
 
@@ -57,7 +58,10 @@ public class SavingsGoal {
 
     private String date;
 
-    @ManyToOne(targetEntity = Session.class)
+    @Column(name = "date_epoch")
+    private Long dateEpoch;
+
+    @ManyToOne(targetEntity = Session.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     private Session session;
 
@@ -82,6 +86,23 @@ public class SavingsGoal {
         this.balance = balance;
     }
 
+    /**
+     * Constructor to create a detached copy of a SavingGoal, including the date from which it is active.
+     *
+     * @param id SavingGoal id
+     * @param name name of the goal, decided by the user.
+     * @param goal the balance to reach for this savings goal
+     * @param savePerMonth the amount of money to put aside per month
+     * @param minBalanceRequired the minimum balance required for the savings to be put aside
+     * @param balance the current amount of savings towards this goal
+     * @param dateEpoch the date from which the savings goal is active
+     */
+    public SavingsGoal(Integer id, String name, Integer goal, Integer savePerMonth, Integer minBalanceRequired,
+                       Integer balance, Long dateEpoch) {
+        this(id, name, goal, savePerMonth, minBalanceRequired, balance);
+        this.dateEpoch = dateEpoch;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -134,8 +155,20 @@ public class SavingsGoal {
         return date;
     }
 
-    public void setDate(String date) {
-        this.date = date;
+    public Long getDateEpoch() {
+        return dateEpoch;
+    }
+
+    /**
+     * Sets the date from which the savings goal is active, of which the formatted form is only kept for the API.
+     */
+    public void setDate(long date) {
+        this.dateEpoch = date;
+        this.date = Dates.format(date);
+    }
+
+    public Session getSession() {
+        return session;
     }
 
     public void setSession(Session session) {
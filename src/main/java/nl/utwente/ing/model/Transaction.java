@@ -25,6 +25,7 @@
 package nl.utwente.ing.model;
 
 import javax.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.transaction.annotation.Transactional;
 
 @Entity
@@ -33,11 +34,15 @@ public class Transaction {
 
     @Id
     @Column(name = "transaction_id")
-    @GeneratedValue(generator="sqlite")
-    @TableGenerator(name="sqlite", table="sqlite_sequence", pkColumnName="name", valueColumnName="seq", pkColumnValue="transactions")
+    @GeneratedValue(generator = "block")
+    @GenericGenerator(name = "block", strategy = "nl.utwente.ing.repository.BlockIdGenerator")
     private Integer id;
 
     private String date;
+
+    @Column(name = "date_epoch")
+    private Long dateEpoch;
+
     private Long amount;
     private String description;
 
@@ -47,18 +52,18 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private Type type;
 
-    @ManyToOne(targetEntity = Category.class)
+    @ManyToOne(targetEntity = Category.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
     @Transient
     private Long currentBalance = 0L;
 
-    @ManyToOne(targetEntity = PaymentRequest.class)
+    @ManyToOne(targetEntity = PaymentRequest.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_request_id")
     private PaymentRequest paymentRequest;
 
-    @ManyToOne(targetEntity = Session.class)
+    @ManyToOne(targetEntity = Session.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     private Session session;
 
@@ -69,21 +74,22 @@ public class Transaction {
      * @param id transaction id
      * @param amount transaction amount in cents
      */
-    public Transaction(Integer id, String date, Long amount, String description, String externalIBAN, Type type) {
+    public Transaction(Integer id, long date, Long amount, String description, String externalIBAN, Type type) {
         this(id, date, amount, description, externalIBAN, type,null);
     }
 
     /**
      * Constructor to create a transaction with a category.
      * @param id transaction id
+     * @param date transaction date in milliseconds since the epoch
      * @param amount transaction amount in cents
      * @param externalIBAN IBAN number of the sender/receiver
      * @param type type of transaction
      * @param category transaction category
      */
-    public Transaction(Integer id, String date, Long amount, String description, String externalIBAN, Type type, Category category) {
+    public Transaction(Integer id, long date, Long amount, String description, String externalIBAN, Type type, Category category) {
         this.id = id;
-        this.date = date;
+        setDate(date);
         this.amount = amount;
         this.description = description;
         this.externalIBAN = externalIBAN;
@@ -100,6 +106,10 @@ public class Transaction {
         return date;
     }
 
+    public Long getDateEpoch() {
+        return dateEpoch;
+    }
+
     public Long getAmount() {
         return amount;
     }
@@ -124,8 +134,12 @@ public class Transaction {
         this.id = id;
     }
 
-    public void setDate(String date) {
-        this.date = date;
+    /**
+     * Sets the date of the transaction, of which the formatted form is only kept for the API.
+     */
+    public void setDate(long date) {
+        this.dateEpoch = date;
+        this.date = Dates.format(date);
     }
 
     public void setAmount(Long amount) {
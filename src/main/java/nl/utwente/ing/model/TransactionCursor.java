@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of a transaction in the list of transactions of a session, which is ordered by date and ID, most
+ * recent first. Handed out to clients as an opaque token to continue a listing after this transaction.
+ */
+public class TransactionCursor {
+
+    private final long date;
+    private final int id;
+
+    public TransactionCursor(long date, int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public TransactionCursor(TransactionView transaction) {
+        this(transaction.getDateEpoch(), transaction.getId());
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the token representing this cursor
+     */
+    public String encode() {
+        String value = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token a token created by {@link #encode()}
+     * @return the cursor represented by the token
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static TransactionCursor decode(String token) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        return new TransactionCursor(Long.parseLong(value.substring(0, separator)),
+                Integer.parseInt(value.substring(separator + 1)));
+    }
+}
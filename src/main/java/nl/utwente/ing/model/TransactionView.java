@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+/**
+ * An immutable, read-only row of a Transaction containing only the values that are shown to the user. Unlike a
+ * Transaction, it is not managed by the persistence context, so it is neither tracked nor checked for changes.
+ */
+public class TransactionView {
+
+    private final int id;
+    private final String date;
+    private final long dateEpoch;
+    private final long amount;
+    private final String description;
+    private final String externalIBAN;
+    private final Type type;
+    private final Integer categoryId;
+    private final String categoryName;
+    private final Integer paymentRequestId;
+
+    public TransactionView(int id, String date, long dateEpoch, long amount, String description, String externalIBAN,
+                           Type type, Integer categoryId, String categoryName, Integer paymentRequestId) {
+        this.id = id;
+        this.date = date;
+        this.dateEpoch = dateEpoch;
+        this.amount = amount;
+        this.description = description;
+        this.externalIBAN = externalIBAN;
+        this.type = type;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.paymentRequestId = paymentRequestId;
+    }
+
+    public TransactionView(Transaction transaction) {
+        this(transaction.getId(), transaction.getDate(), transaction.getDateEpoch(), transaction.getAmount(),
+                transaction.getDescription(), transaction.getExternalIBAN(), transaction.getType(),
+                transaction.getCategory() == null ? null : transaction.getCategory().getId(),
+                transaction.getCategory() == null ? null : transaction.getCategory().getName(),
+                transaction.getPaymentRequest() == null ? null : transaction.getPaymentRequest().getId());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public long getDateEpoch() {
+        return dateEpoch;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getExternalIBAN() {
+        return externalIBAN;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public Integer getPaymentRequestId() {
+        return paymentRequestId;
+    }
+}
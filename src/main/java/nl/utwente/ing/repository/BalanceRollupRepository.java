@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.BalanceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BalanceRollupRepository extends JpaRepository<BalanceRollup, BalanceRollup.Key>,
+        BalanceRollupRepositoryCustom {
+
+    /**
+     * Returns a detached copy of the rollup, so it can be updated without being flushed by the persistence context.
+     */
+    @Query("SELECT new nl.utwente.ing.model.BalanceRollup(r.sessionID, r.interval, r.bucketStart, r.open, r.high, " +
+            "r.low, r.close, r.volume) FROM BalanceRollup r WHERE r.sessionID = :sessionId AND r.interval = :interval " +
+            "AND r.bucketStart = :bucketStart")
+    BalanceRollup findRollup(@Param("sessionId") String sessionId, @Param("interval") String interval,
+                             @Param("bucketStart") long bucketStart);
+
+    /**
+     * Returns detached copies of the rollups starting on or after the given bucket, most recent first.
+     */
+    @Query("SELECT new nl.utwente.ing.model.BalanceRollup(r.sessionID, r.interval, r.bucketStart, r.open, r.high, " +
+            "r.low, r.close, r.volume) FROM BalanceRollup r WHERE r.sessionID = :sessionId AND r.interval = :interval " +
+            "AND r.bucketStart >= :bucketStart ORDER BY r.bucketStart DESC")
+    List<BalanceRollup> findRollupsFrom(@Param("sessionId") String sessionId, @Param("interval") String interval,
+                                        @Param("bucketStart") long bucketStart);
+
+    @Modifying
+    @Query("DELETE FROM BalanceRollup WHERE sessionID = :sessionId AND interval = :interval " +
+            "AND bucketStart >= :bucketStart")
+    int deleteFromBucket(@Param("sessionId") String sessionId, @Param("interval") String interval,
+                         @Param("bucketStart") long bucketStart);
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.BalanceRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class BalanceRollupRepositoryImpl implements BalanceRollupRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BalanceRollupRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void saveRollups(List<BalanceRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT OR REPLACE INTO balancerollups (session_id, interval, bucket_start, open, " +
+                "high, low, close, volume) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rollups, rollups.size(),
+                (statement, rollup) -> {
+                    statement.setString(1, rollup.getSessionID());
+                    statement.setString(2, rollup.getInterval());
+                    statement.setLong(3, rollup.getBucketStart());
+                    statement.setLong(4, rollup.getOpen());
+                    statement.setLong(5, rollup.getHigh());
+                    statement.setLong(6, rollup.getLow());
+                    statement.setLong(7, rollup.getClose());
+                    statement.setLong(8, rollup.getVolume());
+                });
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Generates the IDs of an entity from blocks of IDs that are reserved in memory, so that only one in every
+ * {@link #BLOCK_SIZE} inserts has to reserve the next block in the database.
+ *
+ * A block is reserved by moving the <code>sqlite_sequence</code> entry of the table past it, starting after both the
+ * current entry and the highest ID in the table. Rows inserted by SQLite itself therefore never get an ID of a
+ * reserved block, and IDs are never reused after a restart, at the cost of skipping the unused IDs of the last block.
+ * The block is reserved within the transaction of the insert that needs it. In case that transaction is rolled back,
+ * so is the reservation, which is why the block is then discarded.
+ */
+public class BlockIdGenerator implements IdentifierGenerator, Configurable {
+
+    /**
+     * The number of IDs reserved at once.
+     */
+    public static final int BLOCK_SIZE = 50;
+
+    private String table;
+    private String selectSql;
+
+    /**
+     * The next ID to hand out and the last ID of the current block.
+     */
+    private long next = 1;
+    private long last = 0;
+
+    /**
+     * Counts the reserved blocks, so a rolled back transaction only discards the block it reserved.
+     */
+    private long block = 0;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        String column = params.getProperty(PersistentIdentifierGenerator.PK);
+        selectSql = "SELECT MAX(IFNULL((SELECT seq FROM sqlite_sequence WHERE name = ?), 0), " +
+                "IFNULL((SELECT MAX(" + column + ") FROM " + table + "), 0))";
+    }
+
+    @Override
+    public synchronized Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (next > last) {
+            reserve(session);
+        }
+        return Math.toIntExact(next++);
+    }
+
+    private void reserve(SharedSessionContractImplementor session) {
+        long start = select(session) + 1;
+        long end = start + BLOCK_SIZE - 1;
+        if (update(session, "UPDATE sqlite_sequence SET seq = ? WHERE name = ?", end) == 0) {
+            update(session, "INSERT INTO sqlite_sequence (seq, name) VALUES (?, ?)", end);
+        }
+
+        next = start;
+        last = end;
+        long reserved = ++block;
+
+        ((EventSource) session).getActionQueue().registerProcess((success, completedSession) -> {
+            if (!success) {
+                discard(reserved);
+            }
+        });
+    }
+
+    private synchronized void discard(long reserved) {
+        if (block == reserved) {
+            next = last + 1;
+        }
+    }
+
+    private long select(SharedSessionContractImplementor session) {
+        JdbcCoordinator jdbcCoordinator = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbcCoordinator.getStatementPreparer().prepareStatement(selectSql);
+        try {
+            statement.setString(1, table);
+            ResultSet resultSet = jdbcCoordinator.getResultSetReturn().extract(statement);
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not read the IDs of " + table,
+                    selectSql);
+        } finally {
+            jdbcCoordinator.getResourceRegistry().release(statement);
+            jdbcCoordinator.afterStatementExecution();
+        }
+    }
+
+    private int update(SharedSessionContractImplementor session, String sql, long seq) {
+        JdbcCoordinator jdbcCoordinator = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbcCoordinator.getStatementPreparer().prepareStatement(sql);
+        try {
+            statement.setLong(1, seq);
+            statement.setString(2, table);
+            return jdbcCoordinator.getResultSetReturn().executeUpdate(statement);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not reserve IDs of " + table,
+                    sql);
+        } finally {
+            jdbcCoordinator.getResourceRegistry().release(statement);
+            jdbcCoordinator.afterStatementExecution();
+        }
+    }
+}
@@ -37,10 +37,18 @@ import java.util.List;
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
-    List<Category> findBySession(Session session);
+    /**
+     * Returns detached copies of the categories of the session, which are not tracked by the persistence context.
+     */
+    @Query("SELECT new nl.utwente.ing.model.Category(c.id, c.name) FROM Category c WHERE c.session = :session")
+    List<Category> findBySession(@Param("session") Session session);
 
     Category findByIdAndSession(int id, Session session);
 
+    @Query("SELECT new nl.utwente.ing.model.Category(c.id, c.name) FROM Category c " +
+            "WHERE c.id = :id AND c.session = :session")
+    Category findViewByIdAndSession(@Param("id") int id, @Param("session") Session session);
+
     @Modifying
     @Query("UPDATE Category SET name = :name WHERE id = :id AND session = :session")
     int setCategoryNameByIdAndSession(@Param("name") String name, @Param("id") int id, @Param("session") Session session);
@@ -38,9 +38,23 @@ import java.util.List;
 @Repository
 public interface CategoryRuleRepository extends JpaRepository<CategoryRule, Long> {
 
-    List<CategoryRule> findBySession(Session session);
+    /**
+     * Returns detached copies of the category rules of the session, which are not tracked by the persistence context.
+     */
+    @Query("SELECT new nl.utwente.ing.model.CategoryRule(r.id, r.description, r.iban, r.type, r.category.id, " +
+            "r.applyOnHistory) FROM CategoryRule r WHERE r.session = :session")
+    List<CategoryRule> findBySession(@Param("session") Session session);
 
-    CategoryRule findByIdAndSession(int id, Session session);
+    /**
+     * Returns the category rules of the session in the order in which they were added, with their categories loaded
+     * so that these can still be used once the persistence context is closed.
+     */
+    @Query("SELECT r FROM CategoryRule r LEFT JOIN FETCH r.category WHERE r.session = :session ORDER BY r.id")
+    List<CategoryRule> findBySessionOrderByIdAsc(@Param("session") Session session);
+
+    @Query("SELECT new nl.utwente.ing.model.CategoryRule(r.id, r.description, r.iban, r.type, r.category.id, " +
+            "r.applyOnHistory) FROM CategoryRule r WHERE r.id = :id AND r.session = :session")
+    CategoryRule findViewByIdAndSession(@Param("id") int id, @Param("session") Session session);
 
     @Modifying
     @Query("UPDATE CategoryRule SET description = :description , iban = :iban, type = :type, category = :category " +
@@ -49,14 +63,32 @@ public interface CategoryRuleRepository extends JpaRepository<CategoryRule, Long
                                          @Param("type") String type, @Param("category") Category category,
                                          @Param("ruleId") int ruleId, @Param("session") Session session);
 
-    @Modifying
-    @Query(value = "UPDATE transactions SET category_id = :categoryID " +
+    @Query("SELECT MAX(t.id) FROM Transaction t WHERE t.session = :session")
+    Integer findLastTransactionId(@Param("session") Session session);
+
+    @Query(value = "SELECT COUNT(*) FROM transactions " +
             "WHERE (:description = '' OR description = :description)" +
             "AND (:iban = '' OR external_iban = :iban)" +
             "AND (:type = '' OR type = :type)" +
-            "AND session_id = :sessionID", nativeQuery = true)
-    int updateTransactions(@Param("categoryID") int categoryID, @Param("description") String description,
-                           @Param("iban") String iban, @Param("type") String type, @Param("sessionID") String sessionID);
+            "AND session_id = :sessionID AND transaction_id <= :lastID", nativeQuery = true)
+    int countTransactions(@Param("description") String description, @Param("iban") String iban,
+                          @Param("type") String type, @Param("sessionID") String sessionID, @Param("lastID") int lastID);
+
+    @Query(value = "SELECT transaction_id FROM transactions " +
+            "WHERE (:description = '' OR description = :description)" +
+            "AND (:iban = '' OR external_iban = :iban)" +
+            "AND (:type = '' OR type = :type)" +
+            "AND session_id = :sessionID AND transaction_id > :afterID AND transaction_id <= :lastID " +
+            "ORDER BY transaction_id LIMIT :limit", nativeQuery = true)
+    List<Integer> findTransactionIds(@Param("description") String description, @Param("iban") String iban,
+                                     @Param("type") String type, @Param("sessionID") String sessionID,
+                                     @Param("afterID") int afterID, @Param("lastID") int lastID,
+                                     @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE transactions SET category_id = :categoryID WHERE transaction_id IN (:transactionIDs)",
+            nativeQuery = true)
+    int updateTransactions(@Param("categoryID") int categoryID, @Param("transactionIDs") List<Integer> transactionIDs);
 
     int deleteByIdAndSession(int id, Session session);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.LedgerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryRepositoryCustom {
+
+    @Query("SELECT balance FROM LedgerEntry WHERE sessionID = :sessionId ORDER BY date DESC, transactionId DESC")
+    List<Long> findLatestBalance(@Param("sessionId") String sessionId, Pageable pageable);
+
+    LedgerEntry findFirstBySessionIDAndDateLessThanOrderByDateDescTransactionIdDesc(String sessionID, long date);
+
+    @Query("SELECT new nl.utwente.ing.model.LedgerEntry(e.transactionId, e.sessionID, e.date, e.balance, e.amount, " +
+            "e.savings) FROM LedgerEntry e WHERE e.sessionID = :sessionId AND e.date >= :date " +
+            "ORDER BY e.date, e.transactionId")
+    List<LedgerEntry> findEntriesFrom(@Param("sessionId") String sessionId, @Param("date") long date);
+
+    @Modifying
+    @Query("DELETE FROM LedgerEntry WHERE sessionID = :sessionId AND date >= :date")
+    int deleteFromDate(@Param("sessionId") String sessionId, @Param("date") long date);
+
+    /**
+     * Returns the IDs of the sessions of which the ledger does not match their transactions or which have no balance
+     * rollups yet. Uses JPQL rather than SQL, as SQLite does not report the type of the column when no session is
+     * stale, which Hibernate can not map.
+     */
+    @Query("SELECT s.sessionID FROM Session s " +
+            "WHERE (SELECT COUNT(t) FROM Transaction t WHERE t.session = s) " +
+            "<> (SELECT COUNT(l) FROM LedgerEntry l WHERE l.sessionID = s.sessionID) " +
+            "OR (EXISTS (SELECT l.transactionId FROM LedgerEntry l WHERE l.sessionID = s.sessionID) " +
+            "AND NOT EXISTS (SELECT r.bucketStart FROM BalanceRollup r WHERE r.sessionID = s.sessionID))")
+    List<String> findStaleSessions();
+}
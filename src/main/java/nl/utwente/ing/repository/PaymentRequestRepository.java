@@ -26,14 +26,33 @@ package nl.utwente.ing.repository;
 
 import java.util.List;
 import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.PaymentRequestView;
 import nl.utwente.ing.model.Session;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PaymentRequestRepository extends JpaRepository<PaymentRequest, Long> {
 
-    List<PaymentRequest> findBySession(Session session);
+    @Query("SELECT new nl.utwente.ing.model.PaymentRequestView(p.id, p.description, p.dueDate, p.amount, " +
+            "p.requestCount) FROM PaymentRequest p WHERE p.session = :session ORDER BY p.id")
+    List<PaymentRequestView> findViewsBySession(@Param("session") Session session);
 
-    List<PaymentRequest> findBySessionAndDueDateBeforeAndAmount(Session session, String date, Long amount);
+    /**
+     * Returns the payment requests of the session with the given amount that were due before the given date and have
+     * not been paid by enough transactions yet, in the order in which they should be paid.
+     */
+    @Query("SELECT p FROM PaymentRequest p WHERE p.session = :session AND p.dueDateEpoch < :date " +
+            "AND p.amount = :amount AND SIZE(p.transactions) <> p.requestCount ORDER BY p.id")
+    List<PaymentRequest> findUnfilledBySession(@Param("session") Session session, @Param("date") long date,
+                                               @Param("amount") Long amount);
+
+    /**
+     * Returns every payment request of the session together with the number of transactions it has been paid by.
+     */
+    @Query("SELECT p, (SELECT COUNT(t) FROM Transaction t WHERE t.paymentRequest = p) FROM PaymentRequest p " +
+            "WHERE p.session = :session ORDER BY p.id")
+    List<Object[]> findBySessionWithTransactionCount(@Param("session") Session session);
 }
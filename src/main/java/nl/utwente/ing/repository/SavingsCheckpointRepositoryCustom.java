@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.SavingsCheckpoint;
+
+import java.util.List;
+
+/**
+ * Repository methods for savings checkpoints that are implemented using plain JDBC rather than JPA.
+ */
+public interface SavingsCheckpointRepositoryCustom {
+
+    /**
+     * Returns the checkpoints of the most recent transaction of the session dated before the given date at which
+     * savings were set aside, using a single query.
+     *
+     * @param sessionID the ID of the session of which to return the checkpoints
+     * @param date      the date before which the transaction should be dated
+     * @return the amounts saved towards the savings goals at that transaction, or an empty list if nothing was saved
+     */
+    List<SavingsCheckpoint> findLatestBefore(String sessionID, long date);
+
+    /**
+     * Inserts all checkpoints using a single JDBC batch. Must be called within a transaction.
+     *
+     * @param checkpoints the checkpoints to insert
+     */
+    void addCheckpoints(List<SavingsCheckpoint> checkpoints);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.SavingsCheckpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class SavingsCheckpointRepositoryImpl implements SavingsCheckpointRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SavingsCheckpointRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<SavingsCheckpoint> findLatestBefore(String sessionID, long date) {
+        return jdbcTemplate.query("SELECT transaction_id, savings_goal_id, session_id, date, saved " +
+                        "FROM savingscheckpoints WHERE transaction_id = (SELECT transaction_id FROM savingscheckpoints " +
+                        "WHERE session_id = ? AND date < ? ORDER BY date DESC, transaction_id DESC LIMIT 1)",
+                (resultSet, row) -> new SavingsCheckpoint(resultSet.getInt(1), resultSet.getInt(2),
+                        resultSet.getString(3), resultSet.getLong(4), resultSet.getLong(5)),
+                sessionID, date);
+    }
+
+    @Override
+    public void addCheckpoints(List<SavingsCheckpoint> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO savingscheckpoints (transaction_id, savings_goal_id, session_id, date, " +
+                "saved) VALUES (?, ?, ?, ?, ?)", checkpoints, checkpoints.size(), (statement, checkpoint) -> {
+                    statement.setInt(1, checkpoint.getTransactionId());
+                    statement.setInt(2, checkpoint.getSavingsGoalId());
+                    statement.setString(3, checkpoint.getSessionID());
+                    statement.setLong(4, checkpoint.getDate());
+                    statement.setLong(5, checkpoint.getSaved());
+                });
+    }
+}
@@ -27,6 +27,8 @@ package nl.utwente.ing.repository;
 import nl.utwente.ing.model.SavingsGoal;
 import nl.utwente.ing.model.Session;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -36,5 +38,11 @@ public interface SavingsGoalRepository extends JpaRepository<SavingsGoal, Long>
 
     List<SavingsGoal> findBySession(Session session);
 
+    @Query("SELECT new nl.utwente.ing.model.SavingsGoal(g.id, g.name, g.goal, g.savePerMonth, g.minBalanceRequired, " +
+            "g.balance, g.dateEpoch) FROM SavingsGoal g WHERE g.session = :session ORDER BY g.id")
+    List<SavingsGoal> findViewsBySession(@Param("session") Session session);
+
+    SavingsGoal findByIdAndSession(int id, Session session);
+
     int deleteByIdAndSession(int id, Session session);
 }
@@ -27,8 +27,10 @@ package nl.utwente.ing.repository;
 import nl.utwente.ing.model.Category;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.TransactionView;
 import nl.utwente.ing.model.Type;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -38,45 +40,60 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
-    List<Transaction> findBySessionOrderByDateAsc(Session session);
+    /**
+     * Selects the read-only view of a transaction, to which the conditions of a query are appended.
+     */
+    String VIEW = "SELECT new nl.utwente.ing.model.TransactionView(t.id, t.date, t.dateEpoch, t.amount, " +
+            "t.description, t.externalIBAN, t.type, c.id, c.name, t.paymentRequest.id) " +
+            "FROM Transaction t LEFT JOIN t.category c ";
 
-    List<Transaction> findBySessionOrderByDateDesc(Session session);
+    @Query(VIEW + "WHERE t.session = :session AND t.dateEpoch >= :date ORDER BY t.dateEpoch, t.id")
+    List<TransactionView> findViewsBySessionFrom(@Param("session") Session session, @Param("date") long date);
 
-    List<Transaction> findBySessionOrderByDateDesc(Session session, Pageable pageable);
+    @Query(VIEW + "WHERE t.session = :session ORDER BY t.dateEpoch DESC, t.id DESC")
+    List<TransactionView> findViewsBySession(@Param("session") Session session, Pageable pageable);
 
-    List<Transaction> findBySessionAndCategoryNameOrderByDateDesc(Session session, String categoryName);
+    @Query(VIEW + "WHERE t.session = :session AND c.name = :categoryName ORDER BY t.dateEpoch DESC, t.id DESC")
+    List<TransactionView> findViewsBySessionAndCategoryName(@Param("session") Session session,
+                                                            @Param("categoryName") String categoryName,
+                                                            Pageable pageable);
 
-    List<Transaction> findBySessionAndCategoryNameOrderByDateDesc(Session session, String categoryName, Pageable pageable);
+    @Query(VIEW + "WHERE t.session = :session " +
+            "AND (t.dateEpoch < :date OR (t.dateEpoch = :date AND t.id < :id)) ORDER BY t.dateEpoch DESC, t.id DESC")
+    List<TransactionView> findViewsBySessionAfter(@Param("session") Session session, @Param("date") long date,
+                                                  @Param("id") int id, Pageable pageable);
 
+    @Query(VIEW + "WHERE t.session = :session AND c.name = :categoryName " +
+            "AND (t.dateEpoch < :date OR (t.dateEpoch = :date AND t.id < :id)) ORDER BY t.dateEpoch DESC, t.id DESC")
+    List<TransactionView> findViewsBySessionAndCategoryNameAfter(@Param("session") Session session,
+                                                                 @Param("categoryName") String categoryName,
+                                                                 @Param("date") long date, @Param("id") int id,
+                                                                 Pageable pageable);
+
+    @Query(VIEW + "WHERE t.id = :id AND t.session = :session")
+    TransactionView findViewByIdAndSession(@Param("id") int id, @Param("session") Session session);
+
+    @Query(VIEW + "WHERE t.session = :session AND t.paymentRequest IS NOT NULL ORDER BY t.id")
+    List<TransactionView> findViewsBySessionWithPaymentRequest(@Param("session") Session session);
+
+    @EntityGraph(attributePaths = "category")
     Transaction findByIdAndSession(int id, Session session);
 
-    Transaction findFirstByOrderByDateDesc();
+    @Query("SELECT dateEpoch FROM Transaction WHERE id = :id AND session = :session")
+    Long findDateByIdAndSession(@Param("id") int id, @Param("session") Session session);
 
-    @Query(value = "SELECT last_insert_rowid() FROM transactions LIMIT 1", nativeQuery =  true)
-    int findLastId();
+    @Query("SELECT MAX(dateEpoch) FROM Transaction WHERE session = :session")
+    Long findLatestDateBySession(@Param("session") Session session);
 
-    @Modifying
-    @Query(value = "INSERT INTO transactions (date, amount, description, external_iban, category_id, type, payment_request_id, session_id) VALUES " +
-            "(:date, :amount, :description, :externalIban, (SELECT category_id " +
-            "FROM categoryrules " +
-            "WHERE (description = :description OR description = '') " +
-            "AND (iban = :externalIban OR iban = '') " +
-            "AND (type = :type OR type = '') " +
-            "AND (category_id IS NOT NULL) " +
-            "AND (session_id = :sessionId) " +
-            "LIMIT 1), " +
-            ":type, :paymentRequestId, :sessionId)", nativeQuery = true)
-    int addTransactionWithoutCategory(@Param("date") String date, @Param("amount") Long amount,
-                                      @Param("description") String description, @Param("externalIban") String iban,
-                                      @Param("type") String type, @Param("paymentRequestId") Integer paymentRequestId,
-                                      @Param("sessionId") String sessionId);
+    @Query("SELECT session.sessionID, MAX(dateEpoch) FROM Transaction GROUP BY session.sessionID")
+    List<Object[]> findLatestDatePerSession();
 
     @Modifying
-    @Query("UPDATE Transaction SET date = :date, amount = :amount, description = :description, " +
+    @Query("UPDATE Transaction SET date = :date, dateEpoch = :dateEpoch, amount = :amount, description = :description, " +
             "externalIBAN = :externalIban, type = :type WHERE id = :id AND session = :session")
-    int updateTransaction(@Param("date") String date, @Param("amount") Long amount,
+    int updateTransaction(@Param("date") String date, @Param("dateEpoch") long dateEpoch, @Param("amount") Long amount,
                           @Param("description") String description, @Param("externalIban") String iban,
                           @Param("type") Type type, @Param("id") int id, @Param("session") Session session);
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.repository;
+
+import nl.utwente.ing.model.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private static final String INSERT = "INSERT INTO transactions (date, date_epoch, amount, description, " +
+            "external_iban, category_id, type, payment_request_id, session_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TransactionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void addTransaction(Transaction transaction) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
+            setValues(statement, transaction);
+            return statement;
+        }, keyHolder);
+
+        transaction.setId(keyHolder.getKey().intValue());
+    }
+
+    @Override
+    public void addTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT, transactions, transactions.size(), TransactionRepositoryImpl::setValues);
+
+        // The first insert locks the database for writing until the transaction ends, so every row was assigned the
+        // next available ID and the IDs of the batch are consecutive.
+        Integer lastId = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Integer.class);
+        int id = lastId - transactions.size() + 1;
+        for (Transaction transaction : transactions) {
+            transaction.setId(id++);
+        }
+    }
+
+    private static void setValues(PreparedStatement statement, Transaction transaction) throws SQLException {
+        statement.setString(1, transaction.getDate());
+        statement.setLong(2, transaction.getDateEpoch());
+        statement.setLong(3, transaction.getAmount());
+        statement.setString(4, transaction.getDescription());
+        statement.setString(5, transaction.getExternalIBAN());
+        if (transaction.getCategory() == null) {
+            statement.setNull(6, Types.INTEGER);
+        } else {
+            statement.setInt(6, transaction.getCategory().getId());
+        }
+        statement.setString(7, transaction.getType().name());
+        if (transaction.getPaymentRequest() == null) {
+            statement.setNull(8, Types.INTEGER);
+        } else {
+            statement.setInt(8, transaction.getPaymentRequest().getId());
+        }
+        statement.setString(9, transaction.getSession().getSessionID());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.LedgerEntry;
+import nl.utwente.ing.model.SavingsCheckpoint;
+import nl.utwente.ing.model.Session;
+import nl.utwente.ing.model.TransactionView;
+import nl.utwente.ing.repository.LedgerEntryRepository;
+import nl.utwente.ing.repository.SavingsCheckpointRepository;
+import nl.utwente.ing.repository.SavingsGoalRepository;
+import nl.utwente.ing.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class BalanceLedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final TransactionRepository transactionRepository;
+    private final SavingsGoalRepository savingsGoalRepository;
+    private final SavingsCheckpointRepository savingsCheckpointRepository;
+    private final BalanceRollupService balanceRollupService;
+
+    @Autowired
+    public BalanceLedgerService(LedgerEntryRepository ledgerEntryRepository,
+                                TransactionRepository transactionRepository,
+                                SavingsGoalRepository savingsGoalRepository,
+                                SavingsCheckpointRepository savingsCheckpointRepository,
+                                BalanceRollupService balanceRollupService) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.transactionRepository = transactionRepository;
+        this.savingsGoalRepository = savingsGoalRepository;
+        this.savingsCheckpointRepository = savingsCheckpointRepository;
+        this.balanceRollupService = balanceRollupService;
+    }
+
+    /**
+     * Returns the current balance of the session, which is zero in case the session has no transactions.
+     */
+    @Transactional(readOnly = true)
+    public long findLatestBalance(Session session) {
+        List<Long> balance = ledgerEntryRepository.findLatestBalance(session.getSessionID(), PageRequest.of(0, 1));
+        return balance.isEmpty() ? 0 : balance.get(0);
+    }
+
+    /**
+     * Recomputes the ledger of the session for every transaction dated on or after the given date. Must be called
+     * after each write that changes the amount, type or date of a transaction or the savings goals of the session.
+     *
+     * The replay resumes from the last entry before the given date, using the balance stored in that entry and the
+     * amounts saved towards the savings goals stored in the latest checkpoint before it. Only the entries and
+     * checkpoints from the given date onwards are replaced. The balance rollups of the session are updated afterwards.
+     *
+     * @param session the session of which the ledger should be updated
+     * @param from    the date of the earliest changed transaction, or <code>null</code> to rebuild the whole ledger
+     */
+    @Transactional
+    public void update(Session session, Long from) {
+        long start = from == null ? Long.MIN_VALUE : from;
+        String sessionID = session.getSessionID();
+
+        LedgerEntry previous = ledgerEntryRepository.findFirstBySessionIDAndDateLessThanOrderByDateDescTransactionIdDesc(
+                sessionID, start);
+        SavingsSimulation simulation = new SavingsSimulation(sessionID, savingsGoalRepository.findBySession(session),
+                previous, savingsCheckpointRepository.findLatestBefore(sessionID, start));
+
+        int removed = ledgerEntryRepository.deleteFromDate(sessionID, start);
+        savingsCheckpointRepository.deleteFromDate(sessionID, start);
+
+        // The transactions are read as detached rows, as they are only needed to compute the entries.
+        List<TransactionView> transactions = transactionRepository.findViewsBySessionFrom(session, start);
+
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size());
+        List<SavingsCheckpoint> checkpoints = new ArrayList<>();
+        for (TransactionView transaction : transactions) {
+            entries.add(simulation.process(transaction));
+            simulation.addCheckpoints(transaction, checkpoints);
+        }
+
+        ledgerEntryRepository.addEntries(entries);
+        savingsCheckpointRepository.addCheckpoints(checkpoints);
+
+        // When no entries had to be removed, the replayed transactions all come after the existing ones. A ledger that is
+        // rebuilt as a whole may have been cleared while its rollups were kept, so its rollups are rebuilt as well.
+        balanceRollupService.update(session, start, from != null && removed == 0);
+    }
+
+    /**
+     * Builds the ledger of every session of which the ledger does not match its transactions or which has no balance
+     * rollups yet, such as sessions that were created before these were introduced. Runs before the web server starts
+     * accepting requests.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Transactional
+    public void updateStaleSessions() {
+        for (String sessionID : ledgerEntryRepository.findStaleSessions()) {
+            update(new Session(sessionID), null);
+        }
+    }
+}
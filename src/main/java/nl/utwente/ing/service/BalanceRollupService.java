@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.BalanceRollup;
+import nl.utwente.ing.model.Dates;
+import nl.utwente.ing.model.Interval;
+import nl.utwente.ing.model.LedgerEntry;
+import nl.utwente.ing.model.Session;
+import nl.utwente.ing.repository.BalanceRollupRepository;
+import nl.utwente.ing.repository.LedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class BalanceRollupService {
+
+    private final BalanceRollupRepository balanceRollupRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    public BalanceRollupService(BalanceRollupRepository balanceRollupRepository,
+                                LedgerEntryRepository ledgerEntryRepository) {
+        this.balanceRollupRepository = balanceRollupRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+    }
+
+    /**
+     * Returns the rollups of the session in the given interval that start on or after the given date, most recent
+     * first. Intervals without any transactions do not have a rollup.
+     */
+    @Transactional(readOnly = true)
+    public List<BalanceRollup> findFrom(Session session, Interval interval, Calendar start) {
+        return balanceRollupRepository.findRollupsFrom(session.getSessionID(), interval.name(),
+                interval.getStart(start).getTimeInMillis());
+    }
+
+    /**
+     * Updates the rollups of the session after its ledger has been recomputed from the given date.
+     *
+     * When only entries after all existing entries were added, the new entries are merged into the rollups. Rollups of
+     * earlier intervals are not touched in that case, as they can no longer change. Otherwise every rollup from the
+     * interval containing the given date onwards is rebuilt from the ledger.
+     *
+     * @param session  the session of which the rollups should be updated
+     * @param from     the date from which the ledger was recomputed
+     * @param appended whether all recomputed entries are dated after the entries that were already in the ledger
+     */
+    @Transactional
+    public void update(Session session, long from, boolean appended) {
+        if (appended) {
+            merge(session, from);
+        } else {
+            rebuild(session, from);
+        }
+    }
+
+    private void merge(Session session, long from) {
+        List<LedgerEntry> entries = ledgerEntryRepository.findEntriesFrom(session.getSessionID(), from);
+        List<BalanceRollup> rollups = new ArrayList<>();
+
+        for (Interval interval : Interval.values()) {
+            BalanceRollup rollup = null;
+
+            for (LedgerEntry entry : entries) {
+                long bucketStart = getBucketStart(interval, entry.getDate());
+
+                if (rollup == null || rollup.getBucketStart() != bucketStart) {
+                    add(rollups, rollup);
+
+                    // Only the first bucket can already have a rollup, every following one has just been entered.
+                    rollup = rollup == null ? balanceRollupRepository.findRollup(session.getSessionID(),
+                            interval.name(), bucketStart) : null;
+                    if (rollup == null) {
+                        rollup = new BalanceRollup(session.getSessionID(), interval.name(), bucketStart,
+                                entry.getBalance());
+                    }
+                }
+
+                rollup.add(entry);
+            }
+
+            add(rollups, rollup);
+        }
+
+        balanceRollupRepository.saveRollups(rollups);
+    }
+
+    private void rebuild(Session session, long from) {
+        // Each interval is rebuilt from the start of the interval containing the date, so the ledger is read from the
+        // earliest of those starts, which is the start of the year.
+        Map<Interval, Long> starts = new EnumMap<>(Interval.class);
+        long earliest = from;
+        for (Interval interval : Interval.values()) {
+            long start = from == Long.MIN_VALUE ? from : getBucketStart(interval, from);
+            starts.put(interval, start);
+            balanceRollupRepository.deleteFromBucket(session.getSessionID(), interval.name(), start);
+            earliest = Math.min(earliest, start);
+        }
+
+        List<LedgerEntry> entries = ledgerEntryRepository.findEntriesFrom(session.getSessionID(), earliest);
+        List<BalanceRollup> rollups = new ArrayList<>();
+
+        for (Interval interval : Interval.values()) {
+            long start = starts.get(interval);
+            BalanceRollup rollup = null;
+
+            for (LedgerEntry entry : entries) {
+                if (entry.getDate() < start) {
+                    continue;
+                }
+
+                long bucketStart = getBucketStart(interval, entry.getDate());
+                if (rollup == null || rollup.getBucketStart() != bucketStart) {
+                    add(rollups, rollup);
+                    rollup = new BalanceRollup(session.getSessionID(), interval.name(), bucketStart, entry.getBalance());
+                }
+
+                rollup.add(entry);
+            }
+
+            add(rollups, rollup);
+        }
+
+        balanceRollupRepository.saveRollups(rollups);
+    }
+
+    private static void add(List<BalanceRollup> rollups, BalanceRollup rollup) {
+        if (rollup != null) {
+            rollups.add(rollup);
+        }
+    }
+
+    private static long getBucketStart(Interval interval, long date) {
+        return interval.getStart(Dates.toCalendar(date)).getTimeInMillis();
+    }
+}
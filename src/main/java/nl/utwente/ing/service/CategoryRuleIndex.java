@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Category;
+import nl.utwente.ing.model.CategoryRule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the category rules of a single session. Every rule is stored under the combination of fields
+ * it matches exactly, with empty fields acting as wildcards, so a transaction can be matched using one hash lookup per
+ * combination of wildcards instead of testing every rule.
+ */
+class CategoryRuleIndex {
+
+    /**
+     * The number of fields a rule can match on: the description, the IBAN and the type.
+     */
+    private static final int FIELDS = 3;
+
+    /**
+     * The first rule for every combination of exactly matched values, in which the wildcard fields are null.
+     */
+    private final Map<List<String>, CategoryRule> rules = new HashMap<>();
+
+    /**
+     * Compiles the rules of a session into an index.
+     *
+     * @param categoryRules the rules of the session, in the order in which they should be applied
+     */
+    CategoryRuleIndex(List<CategoryRule> categoryRules) {
+        for (CategoryRule categoryRule : categoryRules) {
+            String[] fields = {categoryRule.getDescription(), categoryRule.getIban(), categoryRule.getType()};
+
+            // Rules without a category or with missing fields never match any transaction.
+            if (categoryRule.getCategory() == null || Arrays.asList(fields).contains(null)) {
+                continue;
+            }
+
+            for (int i = 0; i < FIELDS; i++) {
+                if (fields[i].isEmpty()) {
+                    fields[i] = null;
+                }
+            }
+
+            // Earlier rules take precedence over later rules with the same fields.
+            rules.putIfAbsent(Arrays.asList(fields), categoryRule);
+        }
+    }
+
+    /**
+     * Returns the category of the first rule matching the given values of a transaction.
+     *
+     * @param description the description of the transaction, which might be null
+     * @param iban        the external IBAN of the transaction
+     * @param type        the type of the transaction
+     * @return the category to assign to the transaction, or null if no rule matches
+     */
+    Category match(String description, String iban, String type) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+
+        String[] values = {description, iban, type};
+        CategoryRule result = null;
+
+        // Every bit of the mask determines whether the corresponding field is matched exactly or by a wildcard.
+        for (int mask = 0; mask < 1 << FIELDS; mask++) {
+            String[] key = new String[FIELDS];
+            boolean possible = true;
+
+            for (int i = 0; i < FIELDS; i++) {
+                if ((mask & 1 << i) != 0) {
+                    key[i] = values[i];
+                    // A missing value can only be matched by a wildcard.
+                    possible &= values[i] != null;
+                }
+            }
+
+            CategoryRule categoryRule = possible ? rules.get(Arrays.asList(key)) : null;
+            if (categoryRule != null && (result == null || categoryRule.getId() < result.getId())) {
+                result = categoryRule;
+            }
+        }
+
+        return result == null ? null : result.getCategory();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.CategoryRule;
+import nl.utwente.ing.model.CategoryRuleJob;
+import nl.utwente.ing.model.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies category rules to the existing transactions of their session in the background. The transactions are
+ * updated in chunks, each in a separate database transaction, so other sessions are able to write in between chunks
+ * instead of waiting for the whole history to be updated. A job stops at the next chunk once its rule has been changed
+ * or deleted, as the rule it was submitted with no longer applies.
+ */
+@Service
+public class CategoryRuleJobService {
+
+    /**
+     * The maximum number of transactions updated in a single database transaction.
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * The time in milliseconds for which the status of a finished job remains available.
+     */
+    private static final long RETENTION = 60 * 60 * 1000;
+
+    private final CategoryRuleService categoryRuleService;
+
+    /**
+     * Runs the jobs one at a time, so at most one chunk competes with the requests for the database at any moment.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-rule-jobs");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Integer, CategoryRuleJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CategoryRuleJobService(CategoryRuleService categoryRuleService) {
+        this.categoryRuleService = categoryRuleService;
+        executor.scheduleWithFixedDelay(this::evict, RETENTION, RETENTION / 4, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules the category rule to be applied to the transactions its session had when this method was called.
+     * Must be called after the category rule has been committed.
+     *
+     * @param categoryRule the category rule to apply to the existing transactions
+     * @return the job that applies the category rule
+     */
+    public CategoryRuleJob submit(CategoryRule categoryRule) {
+        evict();
+
+        CategoryRuleJob job = new CategoryRuleJob(categoryRule.getId(), categoryRule.getSession().getSessionID());
+        jobs.put(categoryRule.getId(), job);
+
+        // Transactions added later on are categorized when they are added, so they do not have to be updated.
+        Integer lastId = categoryRuleService.findLastTransactionId(categoryRule.getSession());
+        if (lastId == null) {
+            job.start(0);
+            job.finish(CategoryRuleJob.Status.completed);
+        } else {
+            executor.execute(() -> run(job, categoryRule, lastId));
+        }
+
+        return job;
+    }
+
+    /**
+     * Returns the job applying the category rule with the given ID, or null if the session has no such job.
+     */
+    public CategoryRuleJob findByCategoryRuleIdAndSession(int categoryRuleId, Session session) {
+        CategoryRuleJob job = jobs.get(categoryRuleId);
+        return job == null || !job.getSessionID().equals(session.getSessionID()) ? null : job;
+    }
+
+    private void run(CategoryRuleJob job, CategoryRule categoryRule, int lastId) {
+        try {
+            job.start(categoryRuleService.countTransactions(categoryRule, lastId));
+
+            int afterId = Integer.MIN_VALUE;
+            List<Integer> chunk;
+            do {
+                chunk = categoryRuleService.updateTransactions(categoryRule, afterId, lastId, CHUNK_SIZE);
+                if (chunk == null) {
+                    job.finish(CategoryRuleJob.Status.cancelled);
+                    return;
+                }
+
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1);
+                    job.progress(chunk.size());
+                }
+
+                // Give waiting requests the chance to acquire the database before the next chunk.
+                Thread.yield();
+            } while (chunk.size() == CHUNK_SIZE);
+
+            job.finish(CategoryRuleJob.Status.completed);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            job.finish(CategoryRuleJob.Status.failed);
+        }
+    }
+
+    /**
+     * Removes the jobs that finished longer than the retention time ago.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < now - RETENTION);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
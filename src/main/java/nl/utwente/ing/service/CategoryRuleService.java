@@ -24,42 +24,84 @@
  */
 package nl.utwente.ing.service;
 
+import nl.utwente.ing.model.Category;
 import nl.utwente.ing.model.CategoryRule;
 import nl.utwente.ing.model.Session;
+import nl.utwente.ing.model.Transaction;
 import nl.utwente.ing.repository.CategoryRuleRepository;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class CategoryRuleService {
 
     private final CategoryRuleRepository categoryRuleRepository;
+    private final SessionLockService sessionLockService;
+    private final SessionVersionService sessionVersionService;
+
+    /**
+     * The compiled rules of every session that matched a transaction since its rules last changed.
+     */
+    private final Map<String, CategoryRuleIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever the rules of any session change, so an index compiled from rules that changed in the
+     * meantime is not stored.
+     */
+    private final AtomicLong version = new AtomicLong();
 
     @Autowired
-    public CategoryRuleService(CategoryRuleRepository categoryRuleRepository) {
+    public CategoryRuleService(CategoryRuleRepository categoryRuleRepository, SessionLockService sessionLockService,
+                               SessionVersionService sessionVersionService) {
         this.categoryRuleRepository = categoryRuleRepository;
+        this.sessionLockService = sessionLockService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     @Transactional
     public CategoryRule add(CategoryRule categoryRule) {
+        sessionLockService.lock(categoryRule.getSession());
+        sessionVersionService.changed(categoryRule.getSession(), Resource.categoryRules);
+        invalidate(categoryRule.getSession());
         return categoryRuleRepository.save(categoryRule);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<CategoryRule> findBySession(Session session) {
         return categoryRuleRepository.findBySession(session);
     }
 
-    @Transactional
-    public CategoryRule findByIdAndSession(int id, Session session) {
-        return categoryRuleRepository.findByIdAndSession(id, session);
+    /**
+     * Returns the rules of the session in the order in which they are applied to new transactions.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryRule> findBySessionInOrder(Session session) {
+        return categoryRuleRepository.findBySessionOrderByIdAsc(session);
+    }
+
+    /**
+     * Returns a detached copy of the category rule, which can only be used to show the category rule to the user.
+     */
+    @Transactional(readOnly = true)
+    public CategoryRule findViewByIdAndSession(int id, Session session) {
+        return categoryRuleRepository.findViewByIdAndSession(id, session);
     }
 
     @Transactional
     public int update(CategoryRule categoryRule) {
+        sessionLockService.lock(categoryRule.getSession());
+        sessionVersionService.changed(categoryRule.getSession(), Resource.categoryRules);
+        invalidate(categoryRule.getSession());
         return categoryRuleRepository.updateCategoryRuleByIdAndSession(
                 categoryRule.getDescription(),
                 categoryRule.getIban(),
@@ -70,19 +112,122 @@ public class CategoryRuleService {
         );
     }
 
+    /**
+     * Returns the ID of the most recently added transaction of the session, or null if it has no transactions.
+     */
+    @Transactional(readOnly = true)
+    public Integer findLastTransactionId(Session session) {
+        return categoryRuleRepository.findLastTransactionId(session);
+    }
+
+    /**
+     * Counts the transactions of the session up to and including the given ID that match the category rule.
+     */
+    @Transactional(readOnly = true)
+    public int countTransactions(CategoryRule categoryRule, int lastId) {
+        return categoryRuleRepository.countTransactions(
+                categoryRule.getDescription(),
+                categoryRule.getIban(),
+                categoryRule.getType(),
+                categoryRule.getSession().getSessionID(),
+                lastId
+        );
+    }
+
+    /**
+     * Assigns the category of the rule to the next chunk of matching transactions, in order of ID. Nothing is updated
+     * in case the rule has been deleted or changed since it was given, which is checked while holding the lock of the
+     * session, so the rule can not change while the chunk is updated.
+     *
+     * @param categoryRule the category rule to apply
+     * @param afterId      the ID after which to start, which is the last ID of the previous chunk
+     * @param lastId       the ID of the last transaction to which the rule should be applied
+     * @param limit        the maximum number of transactions to update
+     * @return the IDs of the updated transactions, in ascending order, or null if the rule was deleted or changed
+     */
     @Transactional
-    public int updateTransactions(CategoryRule categoryRule) {
-        return categoryRuleRepository.updateTransactions(
-                categoryRule.getCategoryId(),
+    public List<Integer> updateTransactions(CategoryRule categoryRule, int afterId, int lastId, int limit) {
+        sessionLockService.lock(categoryRule.getSession());
+
+        CategoryRule current = categoryRuleRepository.findViewByIdAndSession(categoryRule.getId(),
+                categoryRule.getSession());
+        if (current == null || !Objects.equals(current.getDescription(), categoryRule.getDescription())
+                || !Objects.equals(current.getIban(), categoryRule.getIban())
+                || !Objects.equals(current.getType(), categoryRule.getType())
+                || !Objects.equals(current.getCategoryId(), categoryRule.getCategoryId())) {
+            return null;
+        }
+
+        sessionVersionService.changed(categoryRule.getSession(), Resource.transactions);
+
+        List<Integer> transactionIds = categoryRuleRepository.findTransactionIds(
                 categoryRule.getDescription(),
                 categoryRule.getIban(),
                 categoryRule.getType(),
-                categoryRule.getSession().getSessionID()
+                categoryRule.getSession().getSessionID(),
+                afterId,
+                lastId,
+                limit
         );
+
+        if (!transactionIds.isEmpty()) {
+            categoryRuleRepository.updateTransactions(categoryRule.getCategoryId(), transactionIds);
+        }
+        return transactionIds;
     }
 
     @Transactional
     public int delete(int id, Session session) {
+        sessionLockService.lock(session);
+        sessionVersionService.changed(session, Resource.categoryRules);
+        invalidate(session);
         return categoryRuleRepository.deleteByIdAndSession(id, session);
     }
+
+    /**
+     * Returns the category of the first rule of the session, in order of ID, that matches the transaction. Empty
+     * fields of a rule match any value. The rules are compiled into an index the first time they are used, which is
+     * kept until they change.
+     *
+     * @param transaction the transaction to find a category for
+     * @return the category to assign to the transaction, or null if no rule matches
+     */
+    @Transactional
+    public Category match(Transaction transaction) {
+        String sessionID = transaction.getSession().getSessionID();
+        CategoryRuleIndex index = indexes.get(sessionID);
+
+        if (index == null) {
+            long compiledVersion = version.get();
+            index = new CategoryRuleIndex(findBySessionInOrder(transaction.getSession()));
+
+            if (version.get() == compiledVersion) {
+                indexes.put(sessionID, index);
+            }
+        }
+
+        return index.match(transaction.getDescription(), transaction.getExternalIBAN(),
+                transaction.getType().name());
+    }
+
+    /**
+     * Discards the compiled rules of the session. Must be called whenever a rule or category of the session changes.
+     * As other threads might compile the old rules until the change is committed, the rules are discarded again
+     * once the current transaction completes.
+     */
+    void invalidate(Session session) {
+        String sessionID = session.getSessionID();
+        version.incrementAndGet();
+        indexes.remove(sessionID);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    indexes.remove(sessionID);
+                }
+            });
+        }
+    }
 }
@@ -27,6 +27,7 @@ package nl.utwente.ing.service;
 import nl.utwente.ing.model.Category;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.repository.CategoryRepository;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,29 +38,46 @@ import java.util.List;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryRuleService categoryRuleService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryRuleService categoryRuleService,
+                           SessionVersionService sessionVersionService) {
         this.categoryRepository = categoryRepository;
+        this.categoryRuleService = categoryRuleService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     @Transactional
     public Category add(Category category) {
+        sessionVersionService.changed(category.getSession(), Resource.categories);
         return categoryRepository.save(category);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Category> findBySession(Session session) {
         return categoryRepository.findBySession(session);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Category findByIdAndSession(int id, Session session) {
         return categoryRepository.findByIdAndSession(id, session);
     }
 
+    /**
+     * Returns a detached copy of the category, which can only be used to show the category to the user.
+     */
+    @Transactional(readOnly = true)
+    public Category findViewByIdAndSession(int id, Session session) {
+        return categoryRepository.findViewByIdAndSession(id, session);
+    }
+
     @Transactional
     public int update(Category category) {
+        // The compiled category rules of the session refer to its categories.
+        categoryRuleService.invalidate(category.getSession());
+        sessionVersionService.changed(category.getSession(), Resource.categories);
         return categoryRepository.setCategoryNameByIdAndSession(
                 category.getName(),
                 category.getId(),
@@ -69,6 +87,8 @@ public class CategoryService {
 
     @Transactional
     public int delete(int id, Session session) {
+        categoryRuleService.invalidate(session);
+        sessionVersionService.changed(session, Resource.categories);
         return categoryRepository.deleteByIdAndSession(id, session);
     }
 }
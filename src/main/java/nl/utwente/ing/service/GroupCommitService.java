@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.utwente.ing.model.Category;
+import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Adds transactions in groups, so that concurrent requests share a single commit instead of each waiting for a commit
+ * of their own. Every commit makes SQLite flush the database to disk, which takes far longer than the inserts
+ * themselves.
+ *
+ * Transactions are collected by a single thread for at most the configured window after the first one arrives, or
+ * until the configured number of transactions has been collected, and are then added within one database transaction.
+ * Callers wait until that transaction has been committed, so a transaction that has been returned is stored durably.
+ * In case the group fails, every transaction of the group is added on its own instead, so a single invalid transaction
+ * only fails its own request. The fields set by the failed attempt are restored first, and every other effect of adding
+ * a transaction outside of the database is only applied once it has been committed.
+ *
+ * Once the thread has stopped, because the service was shut down or a commit failed with an error, transactions are
+ * added by the requests themselves again. Transactions that were waiting at that moment fail, and a request that has
+ * waited longer than the configured timeout for its transaction to be taken up adds it itself as well.
+ */
+@Service
+public class GroupCommitService {
+
+    private final TransactionService transactionService;
+
+    /**
+     * The time in milliseconds to wait for more transactions after the first one, or 0 to commit every transaction on
+     * its own.
+     */
+    private final long window;
+
+    /**
+     * The maximum number of transactions committed at once.
+     */
+    private final int maxSize;
+
+    /**
+     * The time in milliseconds a request waits for its transaction to be committed.
+     */
+    private final long timeout;
+
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+
+    /**
+     * Whether the thread takes transactions from the queue, which is cleared before the remaining ones are failed.
+     */
+    private volatile boolean running;
+
+    private final Counter commits;
+    private final DistributionSummary groupSizes;
+
+    @Autowired
+    public GroupCommitService(TransactionService transactionService, MeterRegistry meterRegistry,
+                              @Value("${dpa.group-commit.window:5}") long window,
+                              @Value("${dpa.group-commit.max-size:100}") int maxSize,
+                              @Value("${dpa.group-commit.timeout:30000}") long timeout) {
+        if (window < 0 || maxSize < 1 || timeout < 1) {
+            throw new IllegalArgumentException("Invalid group commit window, size or timeout: " + window + ", "
+                    + maxSize + ", " + timeout);
+        }
+
+        this.transactionService = transactionService;
+        this.window = window;
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+        // Every commit is a sync of the database file, so the rate of this counter is the number of syncs per second.
+        this.commits = Counter.builder("transactions.commits")
+                .description("Commits of added transactions, each of which syncs the database to disk")
+                .register(meterRegistry);
+        this.groupSizes = DistributionSummary.builder("transactions.commits.size")
+                .description("Number of transactions added per commit")
+                .register(meterRegistry);
+
+        committer = new Thread(this::run, "transaction-group-commit");
+        committer.setDaemon(true);
+        if (window > 0) {
+            running = true;
+            committer.start();
+        }
+    }
+
+    /**
+     * Adds the transaction to its session in the same way as {@link TransactionService#add(Transaction)}, possibly
+     * together with transactions of other requests. Returns once the transaction has been committed.
+     *
+     * @param transaction the transaction to add, of which the ID and category are set once it has been added
+     * @return the added transaction
+     */
+    public Transaction add(Transaction transaction) {
+        // The thread is never started for a window of 0, and no longer running once it has been stopped.
+        if (!running) {
+            return addDirectly(transaction);
+        }
+
+        Write write = new Write(transaction);
+        queue.add(write);
+        // The thread may have stopped in the meantime, after which a write that is still queued is never failed.
+        if (!running && queue.remove(write)) {
+            return addDirectly(transaction);
+        }
+
+        try {
+            return write.result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Transaction could not be added", cause);
+        } catch (TimeoutException e) {
+            // A transaction that is still queued has not been taken up by the thread, so it can safely be added here.
+            if (queue.remove(write)) {
+                return addDirectly(transaction);
+            }
+            throw new IllegalStateException("Transaction was not committed within " + timeout + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (queue.remove(write)) {
+                throw new IllegalStateException("Interrupted before the transaction was added", e);
+            }
+            throw new IllegalStateException("Interrupted while the transaction was being committed", e);
+        }
+    }
+
+    private Transaction addDirectly(Transaction transaction) {
+        Transaction result = transactionService.add(transaction);
+        committed(1);
+        return result;
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>(maxSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                group.add(queue.take());
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+                while (group.size() < maxSize) {
+                    Write write = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (write == null) {
+                        break;
+                    }
+                    group.add(write);
+                }
+
+                commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+            IllegalStateException shutdown = new IllegalStateException("Transactions are no longer being added");
+            group.forEach(write -> write.result.completeExceptionally(shutdown));
+            queue.forEach(write -> write.result.completeExceptionally(shutdown));
+        }
+    }
+
+    private void commit(List<Write> group) {
+        if (group.size() > 1) {
+            List<Transaction> transactions = new ArrayList<>(group.size());
+            group.forEach(write -> transactions.add(write.transaction));
+
+            try {
+                transactionService.addEach(transactions);
+                committed(group.size());
+                group.forEach(write -> write.result.complete(write.transaction));
+                return;
+            } catch (RuntimeException e) {
+                // Nothing of the group has been committed, so find out which of the transactions caused the failure.
+                group.forEach(Write::reset);
+            }
+        }
+
+        for (Write write : group) {
+            try {
+                write.result.complete(transactionService.add(write.transaction));
+                committed(1);
+            } catch (RuntimeException e) {
+                write.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void committed(int size) {
+        commits.increment();
+        groupSizes.record(size);
+    }
+
+    /**
+     * Stops the thread, waiting at most the timeout for the group it is committing. Transactions that are added
+     * afterwards are added by the requests themselves.
+     */
+    @PreDestroy
+    public void shutdown() {
+        committer.interrupt();
+        try {
+            committer.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A transaction waiting to be added, together with the result handed to the request that added it.
+     */
+    private static class Write {
+
+        private final Transaction transaction;
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        /**
+         * The fields of the transaction as requested, which are replaced once it is added.
+         */
+        private final Category category;
+        private final PaymentRequest paymentRequest;
+
+        Write(Transaction transaction) {
+            this.transaction = transaction;
+            this.category = transaction.getCategory();
+            this.paymentRequest = transaction.getPaymentRequest();
+        }
+
+        /**
+         * Restores the transaction as requested after an attempt to add it was rolled back.
+         */
+        void reset() {
+            transaction.setId(null);
+            transaction.setCategory(category);
+            transaction.setPaymentRequest(paymentRequest);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Session;
+import nl.utwente.ing.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the date of the most recent transaction of every session and of all sessions combined, which is used
+ * as the current date. The dates are kept in memory, so they have to be updated by every write to the transactions.
+ * Within a transaction, the dates are only updated once it has committed, so a rollback does not move them.
+ */
+@Service
+public class LatestDateService {
+
+    private final TransactionRepository transactionRepository;
+
+    private final Map<String, Long> latestDates = new ConcurrentHashMap<>();
+    private volatile Long globalLatestDate;
+
+    @Autowired
+    public LatestDateService(TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * Returns the date of the most recent transaction of the session. In case the session does not have any
+     * transactions, the date of the most recent transaction of any session is returned instead.
+     *
+     * @param session the session of which to return the current date
+     * @return the current date of the session, or <code>null</code> if there are no transactions at all
+     */
+    public Long getLatestDate(Session session) {
+        Long date = latestDates.get(session.getSessionID());
+        return date == null ? globalLatestDate : date;
+    }
+
+    /**
+     * Registers a new transaction of the session, moving the current date forward if the transaction is more recent.
+     */
+    public void add(Session session, long date) {
+        String sessionID = session.getSessionID();
+        afterCommit(() -> add(sessionID, date));
+    }
+
+    /**
+     * Reloads the current date of the session from the database. Must be called after a transaction of the session
+     * was moved or deleted, as the current date might have moved back. The date is read within the current transaction,
+     * which holds the lock of the session, so it can not change before it is stored once the transaction commits.
+     */
+    @Transactional
+    public void refresh(Session session) {
+        String sessionID = session.getSessionID();
+        Long date = transactionRepository.findLatestDateBySession(session);
+        afterCommit(() -> set(sessionID, date));
+    }
+
+    /**
+     * Loads the current date of every session at once. Runs before the web server starts accepting requests.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Transactional
+    public synchronized void load() {
+        latestDates.clear();
+        globalLatestDate = null;
+
+        for (Object[] row : transactionRepository.findLatestDatePerSession()) {
+            if (row[0] != null && row[1] != null) {
+                add(String.valueOf(row[0]), ((Number) row[1]).longValue());
+            }
+        }
+    }
+
+    private synchronized void add(String sessionID, long date) {
+        latestDates.merge(sessionID, date, Math::max);
+
+        if (globalLatestDate == null || globalLatestDate < date) {
+            globalLatestDate = date;
+        }
+    }
+
+    private synchronized void set(String sessionID, Long date) {
+        Long previous = date == null ? latestDates.remove(sessionID) : latestDates.put(sessionID, date);
+
+        if (date != null && (globalLatestDate == null || globalLatestDate < date)) {
+            globalLatestDate = date;
+        } else if (previous != null && previous.equals(globalLatestDate)) {
+            // This session might have been the one holding the global date, so find the most recent of the others.
+            globalLatestDate = latestDates.values().stream().max(Long::compare).orElse(null);
+        }
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
@@ -24,36 +24,75 @@
  */
 package nl.utwente.ing.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import javax.transaction.Transactional;
+import java.util.Map;
+import java.util.stream.Collectors;
 import nl.utwente.ing.model.PaymentRequest;
+import nl.utwente.ing.model.PaymentRequestView;
 import nl.utwente.ing.model.Session;
+import nl.utwente.ing.model.TransactionView;
 import nl.utwente.ing.repository.PaymentRequestRepository;
+import nl.utwente.ing.repository.TransactionRepository;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PaymentRequestService {
 
     private final PaymentRequestRepository paymentRequestRepository;
+    private final TransactionRepository transactionRepository;
+    private final SessionLockService sessionLockService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public PaymentRequestService(PaymentRequestRepository paymentRequestRepository) {
+    public PaymentRequestService(PaymentRequestRepository paymentRequestRepository,
+                                 TransactionRepository transactionRepository, SessionLockService sessionLockService,
+                                 SessionVersionService sessionVersionService) {
         this.paymentRequestRepository = paymentRequestRepository;
+        this.transactionRepository = transactionRepository;
+        this.sessionLockService = sessionLockService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     @Transactional
     public PaymentRequest add(PaymentRequest savingsGoal) {
+        sessionLockService.lock(savingsGoal.getSession());
+        sessionVersionService.changed(savingsGoal.getSession(), Resource.paymentRequests);
         return paymentRequestRepository.save(savingsGoal);
     }
 
-    @Transactional
-    public List<PaymentRequest> findBySession(Session session) {
-        return paymentRequestRepository.findBySession(session);
+    /**
+     * Returns the payment requests of the session together with the transactions that paid them. Both are read using
+     * a single query each, after which the transactions are grouped by payment request.
+     */
+    @Transactional(readOnly = true)
+    public List<PaymentRequestView> findBySession(Session session) {
+        Map<Integer, List<TransactionView>> transactions = new HashMap<>();
+        for (TransactionView transaction : transactionRepository.findViewsBySessionWithPaymentRequest(session)) {
+            transactions.computeIfAbsent(transaction.getPaymentRequestId(), id -> new ArrayList<>()).add(transaction);
+        }
+
+        return paymentRequestRepository.findViewsBySession(session).stream()
+                .map(paymentRequest -> transactions.containsKey(paymentRequest.getId())
+                        ? paymentRequest.withTransactions(transactions.get(paymentRequest.getId())) : paymentRequest)
+                .collect(Collectors.toList());
     }
 
-    @Transactional
-    public List<PaymentRequest> findValidPaymentRequests(Session session, String date, Long amount) {
-        return paymentRequestRepository.findBySessionAndDueDateBeforeAndAmount(session, date, amount);
+    /**
+     * Returns the payment requests that a deposit of the given amount on the given date could pay, which are the
+     * requests that were due before the date and are not filled yet. The first request should be paid.
+     */
+    @Transactional(readOnly = true)
+    public List<PaymentRequest> findValidPaymentRequests(Session session, long date, Long amount) {
+        return paymentRequestRepository.findUnfilledBySession(session, date, amount);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Object[]> findBySessionWithTransactionCount(Session session) {
+        return paymentRequestRepository.findBySessionWithTransactionCount(session);
     }
 }
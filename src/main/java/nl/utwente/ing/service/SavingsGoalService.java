@@ -24,37 +24,80 @@
  */
 package nl.utwente.ing.service;
 
+import nl.utwente.ing.model.SavingsCheckpoint;
 import nl.utwente.ing.model.SavingsGoal;
 import nl.utwente.ing.model.Session;
+import nl.utwente.ing.repository.SavingsCheckpointRepository;
 import nl.utwente.ing.repository.SavingsGoalRepository;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class SavingsGoalService {
 
     private final SavingsGoalRepository savingsGoalRepository;
+    private final SavingsCheckpointRepository savingsCheckpointRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final SessionLockService sessionLockService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public SavingsGoalService(SavingsGoalRepository savingsGoalRepository) {
+    public SavingsGoalService(SavingsGoalRepository savingsGoalRepository,
+                              SavingsCheckpointRepository savingsCheckpointRepository,
+                              BalanceLedgerService balanceLedgerService, SessionLockService sessionLockService,
+                              SessionVersionService sessionVersionService) {
         this.savingsGoalRepository = savingsGoalRepository;
+        this.savingsCheckpointRepository = savingsCheckpointRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.sessionLockService = sessionLockService;
+        this.sessionVersionService = sessionVersionService;
     }
 
     @Transactional
     public SavingsGoal add(SavingsGoal savingsGoal) {
-        return savingsGoalRepository.save(savingsGoal);
+        sessionLockService.lock(savingsGoal.getSession());
+        sessionVersionService.changed(savingsGoal.getSession(), Resource.savingsGoals);
+        SavingsGoal result = savingsGoalRepository.save(savingsGoal);
+        balanceLedgerService.update(savingsGoal.getSession(), savingsGoal.getDateEpoch());
+        return result;
     }
 
-    @Transactional
+    /**
+     * Returns detached copies of the savings goals of the session, which can be modified without being persisted. The
+     * balance of every savings goal is the amount saved at the most recent transaction, as kept by the ledger.
+     */
+    @Transactional(readOnly = true)
     public List<SavingsGoal> findBySession(Session session) {
-        return savingsGoalRepository.findBySession(session);
+        Map<Integer, Long> saved = new HashMap<>();
+        for (SavingsCheckpoint checkpoint : savingsCheckpointRepository.findLatestBefore(session.getSessionID(),
+                Long.MAX_VALUE)) {
+            saved.put(checkpoint.getSavingsGoalId(), checkpoint.getSaved());
+        }
+
+        List<SavingsGoal> savingsGoals = savingsGoalRepository.findViewsBySession(session);
+        for (SavingsGoal savingsGoal : savingsGoals) {
+            savingsGoal.setBalance(Math.toIntExact(saved.getOrDefault(savingsGoal.getId(), 0L)));
+        }
+        return savingsGoals;
     }
 
     @Transactional
     public int delete(int id, Session session) {
-        return savingsGoalRepository.deleteByIdAndSession(id, session);
+        sessionLockService.lock(session);
+        sessionVersionService.changed(session, Resource.savingsGoals);
+        SavingsGoal savingsGoal = savingsGoalRepository.findByIdAndSession(id, session);
+        if (savingsGoal == null) {
+            return 0;
+        }
+
+        int result = savingsGoalRepository.deleteByIdAndSession(id, session);
+        balanceLedgerService.update(session, savingsGoal.getDateEpoch());
+        return result;
     }
 }
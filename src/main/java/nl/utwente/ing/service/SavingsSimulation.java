@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Dates;
+import nl.utwente.ing.model.LedgerEntry;
+import nl.utwente.ing.model.SavingsCheckpoint;
+import nl.utwente.ing.model.SavingsGoal;
+import nl.utwente.ing.model.TransactionView;
+import nl.utwente.ing.model.Type;
+
+import java.util.List;
+
+/**
+ * Simulates the balance of a session and the amounts saved towards its savings goals, one transaction at a time.
+ *
+ * Savings are set aside at the first transaction after one or more month boundaries. For every month that passed,
+ * each savings goal that was active at the previous transaction sets aside its monthly amount, as long as the balance
+ * meets its minimum and the goal has not been reached. The amounts saved therefore only change at those transactions,
+ * for which a checkpoint is created.
+ */
+class SavingsSimulation {
+
+    private final String sessionID;
+    private final List<SavingsGoal> savingsGoals;
+
+    /**
+     * The amount saved towards each savings goal, in the order of the savings goals.
+     */
+    private final long[] saved;
+
+    private long balance;
+    private Long previousDate;
+    private boolean checkpoint;
+
+    /**
+     * Continues the simulation directly after the given ledger entry.
+     *
+     * @param sessionID    the ID of the session to simulate
+     * @param savingsGoals the savings goals of the session
+     * @param previous     the ledger entry of the last transaction that was processed, or <code>null</code> to start
+     *                     before the first transaction
+     * @param checkpoints  the latest checkpoints at or before the previous entry
+     */
+    SavingsSimulation(String sessionID, List<SavingsGoal> savingsGoals, LedgerEntry previous,
+                      List<SavingsCheckpoint> checkpoints) {
+        this.sessionID = sessionID;
+        this.savingsGoals = savingsGoals;
+        this.saved = new long[savingsGoals.size()];
+
+        if (previous != null) {
+            balance = previous.getBalance();
+            previousDate = previous.getDate();
+        }
+
+        for (SavingsCheckpoint checkpoint : checkpoints) {
+            for (int i = 0; i < savingsGoals.size(); i++) {
+                if (savingsGoals.get(i).getId().equals(checkpoint.getSavingsGoalId())) {
+                    saved[i] = checkpoint.getSaved();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets aside the savings of every month that passed since the previous transaction, after which the transaction
+     * itself is processed.
+     *
+     * @param transaction the next transaction, in order of date and ID
+     * @return the ledger entry of the transaction
+     */
+    LedgerEntry process(TransactionView transaction) {
+        long transactionDate = transaction.getDateEpoch();
+
+        long savings = 0;
+        checkpoint = false;
+        if (previousDate != null) {
+            int monthsPassed = Dates.monthsPassed(previousDate, transactionDate);
+
+            for (int j = 0; j < monthsPassed; j++) {
+                for (int i = 0; i < savingsGoals.size(); i++) {
+                    SavingsGoal savingsGoal = savingsGoals.get(i);
+
+                    // This savings goal is not valid yet.
+                    if (previousDate < savingsGoal.getDateEpoch()) {
+                        continue;
+                    }
+
+                    // Ensure the requirements to process this saving have been met.
+                    if (balance >= savingsGoal.getMinBalanceRequired() && saved[i] < savingsGoal.getGoal()) {
+                        balance -= savingsGoal.getSavePerMonth();
+                        saved[i] += savingsGoal.getSavePerMonth();
+                        savings += savingsGoal.getSavePerMonth();
+                        checkpoint = true;
+
+                        // In case we went over the goal, we set the balance to the goal and "refund" the difference.
+                        if (saved[i] > savingsGoal.getGoal()) {
+                            balance += saved[i] - savingsGoal.getGoal();
+                            saved[i] = savingsGoal.getGoal();
+                        }
+                    }
+                }
+            }
+        }
+
+        if (transaction.getType() == Type.withdrawal) {
+            balance -= transaction.getAmount();
+        } else {
+            balance += transaction.getAmount();
+        }
+
+        previousDate = transactionDate;
+        return new LedgerEntry(transaction.getId(), sessionID, transactionDate, balance, transaction.getAmount(),
+                savings);
+    }
+
+    /**
+     * Adds the checkpoints of the last processed transaction to the list, in case savings were set aside at that
+     * transaction. Savings goals that have not saved anything are left out.
+     *
+     * @param transaction the last processed transaction
+     * @param checkpoints the list to which the checkpoints should be added
+     */
+    void addCheckpoints(TransactionView transaction, List<SavingsCheckpoint> checkpoints) {
+        if (!checkpoint) {
+            return;
+        }
+
+        for (int i = 0; i < savingsGoals.size(); i++) {
+            if (saved[i] != 0) {
+                checkpoints.add(new SavingsCheckpoint(transaction.getId(), savingsGoals.get(i).getId(), sessionID,
+                        transaction.getDateEpoch(), saved[i]));
+            }
+        }
+    }
+}
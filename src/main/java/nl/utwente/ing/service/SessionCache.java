@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded, thread-safe set of session IDs in which every ID expires after a fixed amount of time. Once the maximum
+ * size is reached, expired IDs are removed first, followed by the IDs that expire soonest.
+ */
+class SessionCache {
+
+    private final ConcurrentHashMap<String, Long> expiries = new ConcurrentHashMap<>();
+    private final long timeToLive;
+    private final int maximumSize;
+
+    /**
+     * @param timeToLive  the time in milliseconds after which an ID is no longer contained in the cache
+     * @param maximumSize the maximum number of IDs in the cache
+     */
+    SessionCache(long timeToLive, int maximumSize) {
+        this.timeToLive = timeToLive;
+        this.maximumSize = maximumSize;
+    }
+
+    boolean contains(String sessionID) {
+        Long expiry = expiries.get(sessionID);
+        if (expiry == null) {
+            return false;
+        }
+
+        if (expiry < System.currentTimeMillis()) {
+            expiries.remove(sessionID, expiry);
+            return false;
+        }
+
+        return true;
+    }
+
+    void add(String sessionID) {
+        expiries.put(sessionID, System.currentTimeMillis() + timeToLive);
+
+        if (expiries.size() > maximumSize) {
+            evict();
+        }
+    }
+
+    void remove(String sessionID) {
+        expiries.remove(sessionID);
+    }
+
+    int size() {
+        return expiries.size();
+    }
+
+    /**
+     * Shrinks the cache to 90% of its maximum size, so the eviction does not have to run on every addition.
+     */
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        expiries.values().removeIf(expiry -> expiry < now);
+
+        int target = maximumSize - maximumSize / 10;
+        if (expiries.size() <= target) {
+            return;
+        }
+
+        // Every ID lives equally long, so the IDs that expire soonest were added the longest time ago.
+        long[] sorted = expiries.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        long threshold = sorted[Math.max(0, sorted.length - target - 1)];
+
+        Iterator<Long> iterator = expiries.values().iterator();
+        while (iterator.hasNext() && expiries.size() > target) {
+            if (iterator.next() <= threshold) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the writes of every session, so that a write never reads data of its session that another write is
+ * still changing, such as the balance to continue the ledger from or the payment requests that are not filled yet.
+ * Writes of different sessions only wait for each other when their sessions share a lock, which is unlikely given
+ * the number of locks.
+ *
+ * A lock is held until the transaction in which it was acquired completes, so the next write of the session sees the
+ * committed changes. Locks have to be acquired before the first statement of the transaction, as that statement might
+ * wait for the connection of a transaction waiting for the lock. Acquiring several locks is only allowed at once, using
+ * {@link #lockAll(Collection)}.
+ */
+@Service
+public class SessionLockService {
+
+    /**
+     * The number of locks, which is a power of two so the lock of a session is found using a mask.
+     */
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public SessionLockService() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Waits until no other transaction writes to the session and holds the lock of the session until the current
+     * transaction completes.
+     *
+     * @param session the session to which the current transaction writes
+     */
+    public void lock(Session session) {
+        lock(getStripe(session));
+    }
+
+    /**
+     * Locks all sessions in the same way as {@link #lock(Session)}. The locks are acquired in a fixed order, so two
+     * transactions locking some of the same sessions never wait for each other at the same time.
+     *
+     * @param sessions the sessions to which the current transaction writes
+     */
+    public void lockAll(Collection<Session> sessions) {
+        boolean[] stripes = new boolean[STRIPES];
+        for (Session session : sessions) {
+            stripes[getStripe(session)] = true;
+        }
+
+        for (int i = 0; i < STRIPES; i++) {
+            if (stripes[i]) {
+                lock(i);
+            }
+        }
+    }
+
+    private void lock(int stripe) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Sessions can only be locked within a transaction");
+        }
+
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private static int getStripe(Session session) {
+        int hash = session.getSessionID().hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -24,29 +24,95 @@
  */
 package nl.utwente.ing.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.repository.SessionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class SessionService {
 
+    /**
+     * Sessions are never removed, so valid sessions are only expired to keep the cache to a fixed size.
+     */
+    private static final long VALID_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+    private static final int VALID_MAXIMUM_SIZE = 10000;
+
+    /**
+     * Unknown sessions are cached shorter, as they might be added by another instance using the same database.
+     */
+    private static final long INVALID_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1);
+    private static final int INVALID_MAXIMUM_SIZE = 10000;
+
     private final SessionRepository sessionRepository;
 
+    private final SessionCache validSessions = new SessionCache(VALID_TIME_TO_LIVE, VALID_MAXIMUM_SIZE);
+    private final SessionCache invalidSessions = new SessionCache(INVALID_TIME_TO_LIVE, INVALID_MAXIMUM_SIZE);
+
+    private final Counter hits;
+    private final Counter misses;
+
     @Autowired
-    public SessionService(SessionRepository sessionRepository) {
+    public SessionService(SessionRepository sessionRepository, MeterRegistry meterRegistry) {
         this.sessionRepository = sessionRepository;
+        this.hits = meterRegistry.counter("sessions.cache.hits");
+        this.misses = meterRegistry.counter("sessions.cache.misses");
+        meterRegistry.gauge("sessions.cache.size", validSessions, SessionCache::size);
     }
 
+    /**
+     * Adds a new session, which is only cached as valid once it has been committed.
+     */
     @Transactional
     public Session add(String sessionID) {
-        return sessionRepository.save(new Session(sessionID));
+        Session session = sessionRepository.save(new Session(sessionID));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                invalidSessions.remove(sessionID);
+                validSessions.add(sessionID);
+            }
+        });
+        return session;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Session findBySessionID(String sessionID) {
         return sessionRepository.findBySessionID(sessionID);
     }
+
+    /**
+     * Checks whether the session exists. Both existing and unknown session IDs are cached, so repeated requests with
+     * the same session ID do not reach the database.
+     *
+     * @param sessionID the session ID of which to check whether it exists
+     * @return <code>true</code> if the session exists; <code>false</code> otherwise
+     */
+    public boolean isValidSession(String sessionID) {
+        if (validSessions.contains(sessionID)) {
+            hits.increment();
+            return true;
+        }
+
+        if (invalidSessions.contains(sessionID)) {
+            hits.increment();
+            return false;
+        }
+
+        misses.increment();
+        if (sessionRepository.findBySessionID(sessionID) != null) {
+            validSessions.add(sessionID);
+            return true;
+        } else {
+            invalidSessions.add(sessionID);
+            return false;
+        }
+    }
 }
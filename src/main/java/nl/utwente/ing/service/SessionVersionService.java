@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps a version of every resource of every session, which increases whenever a write to that resource completes.
+ * Anything computed from the resources of a session while they had certain versions is still valid as long as none
+ * of those versions changed. The versions are kept in memory and start over when the application is restarted.
+ *
+ * Only the versions of a bounded number of recently used sessions are kept. Every version is taken from a single
+ * clock, and the versions of a session that is used again after being evicted start at the current time of that
+ * clock, so they are larger than any version the session had before and nothing cached for it matches by accident.
+ */
+@Service
+public class SessionVersionService {
+
+    /**
+     * The versions of a session are only used to validate cached data, so they can be evicted at any time.
+     */
+    private static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+    private static final int MAXIMUM_SIZE = 10000;
+
+    /**
+     * The resources of a session that are versioned separately.
+     */
+    public enum Resource {
+        transactions,
+        categories,
+        categoryRules,
+        paymentRequests,
+        savingsGoals
+    }
+
+    /**
+     * Identifies this run of the application, so tags handed out before a restart never match those handed out after.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /**
+     * Increases on every write of any session, and gives the new version of the resource that was written to.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Versions> versions = new ConcurrentHashMap<>();
+
+    /**
+     * The time to live in nanoseconds.
+     */
+    private final long timeToLive;
+    private final int maximumSize;
+
+    public SessionVersionService() {
+        this(TIME_TO_LIVE, MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param timeToLive  the time in milliseconds after which the versions of an unused session may be evicted
+     * @param maximumSize the maximum number of sessions of which the versions are kept
+     */
+    SessionVersionService(long timeToLive, int maximumSize) {
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the combined version of the given resources of the session, which increases whenever any of them
+     * changes. Must be read before the resources themselves, so that data read during a write is never associated
+     * with the version following that write.
+     *
+     * @param session   the session of which to return the version
+     * @param resources the resources on which the data that is read depends
+     * @return the combined version of the resources
+     */
+    public long getVersion(Session session, Resource... resources) {
+        Versions sessionVersions = versions.computeIfAbsent(session.getSessionID(), id -> new Versions());
+        sessionVersions.lastAccess = System.nanoTime();
+        evictIfFull();
+
+        long version = 0;
+        for (Resource resource : resources) {
+            version += sessionVersions.values.get(resource.ordinal());
+        }
+        return version;
+    }
+
+    /**
+     * Returns a tag that identifies a version returned by {@link #getVersion(Session, Resource...)}. Unlike the
+     * version itself, the tag also differs between runs of the application.
+     *
+     * @param version the combined version of the resources of a session
+     * @return the tag of the version
+     */
+    public String getTag(long version) {
+        return epoch + "-" + version;
+    }
+
+    /**
+     * Registers a write to a resource of the session. Within a transaction the version is incremented once the
+     * transaction has completed, so it does not change before the write is visible to others.
+     *
+     * @param session  the session that is written to
+     * @param resource the resource that is written to
+     */
+    void changed(Session session, Resource resource) {
+        String sessionID = session.getSessionID();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(sessionID, resource);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                increment(sessionID, resource);
+            }
+        });
+    }
+
+    private void increment(String sessionID, Resource resource) {
+        // The versions are changed within the lock of their entry, so they can not be evicted halfway.
+        versions.compute(sessionID, (id, sessionVersions) -> {
+            Versions result = sessionVersions == null ? new Versions() : sessionVersions;
+            result.values.set(resource.ordinal(), clock.incrementAndGet());
+            result.lastAccess = System.nanoTime();
+            return result;
+        });
+        evictIfFull();
+    }
+
+    int size() {
+        return versions.size();
+    }
+
+    private void evictIfFull() {
+        if (versions.size() > maximumSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Shrinks the versions to 90% of the maximum size, removing the sessions that have not been used for the time to
+     * live first, followed by the sessions that were used the longest time ago.
+     */
+    private synchronized void evict() {
+        long now = System.nanoTime();
+        versions.values().removeIf(sessionVersions -> now - sessionVersions.lastAccess > timeToLive);
+
+        int target = maximumSize - maximumSize / 10;
+        if (versions.size() <= target) {
+            return;
+        }
+
+        long[] sorted = versions.values().stream().mapToLong(sessionVersions -> sessionVersions.lastAccess).sorted()
+                .toArray();
+        long threshold = sorted[Math.max(0, sorted.length - target - 1)];
+        versions.values().removeIf(sessionVersions -> sessionVersions.lastAccess <= threshold
+                && versions.size() > target);
+    }
+
+    /**
+     * The versions of the resources of a session, which all start at the current time of the clock.
+     */
+    private class Versions {
+
+        private final AtomicLongArray values = new AtomicLongArray(Resource.values().length);
+        /**
+         * The value of {@link System#nanoTime()} when the versions were last used, which orders uses more precisely
+         * than the current time in milliseconds.
+         */
+        private volatile long lastAccess = System.nanoTime();
+
+        Versions() {
+            long start = clock.incrementAndGet();
+            for (int i = 0; i < values.length(); i++) {
+                values.set(i, start);
+            }
+        }
+    }
+}
@@ -25,94 +25,263 @@
 package nl.utwente.ing.service;
 
 import nl.utwente.ing.model.Category;
+import nl.utwente.ing.model.PaymentRequest;
 import nl.utwente.ing.model.Session;
 import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.TransactionCursor;
+import nl.utwente.ing.model.TransactionView;
+import nl.utwente.ing.model.Type;
 import nl.utwente.ing.repository.TransactionRepository;
+import nl.utwente.ing.service.SessionVersionService.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final LatestDateService latestDateService;
+    private final CategoryService categoryService;
+    private final CategoryRuleService categoryRuleService;
+    private final PaymentRequestService paymentRequestService;
+    private final SessionLockService sessionLockService;
+    private final SessionVersionService sessionVersionService;
 
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository, BalanceLedgerService balanceLedgerService,
+                              LatestDateService latestDateService, CategoryService categoryService,
+                              CategoryRuleService categoryRuleService, PaymentRequestService paymentRequestService,
+                              SessionLockService sessionLockService, SessionVersionService sessionVersionService) {
         this.transactionRepository = transactionRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.latestDateService = latestDateService;
+        this.categoryService = categoryService;
+        this.categoryRuleService = categoryRuleService;
+        this.paymentRequestService = paymentRequestService;
+        this.sessionLockService = sessionLockService;
+        this.sessionVersionService = sessionVersionService;
     }
 
+    /**
+     * Adds the transaction to its session. The category is resolved before the transaction is inserted, so the
+     * transaction is inserted using a single statement and does not have to be read back afterwards. A category that
+     * does not belong to the session is ignored, in which case the category rules are applied instead. A deposit pays
+     * the first payment request of the session that it is able to pay.
+     *
+     * @param transaction the transaction to add, of which the ID, category and payment request are set once it has
+     *                    been added
+     * @return the added transaction
+     */
     @Transactional
     public Transaction add(Transaction transaction) {
-        if (transaction.getCategory() == null) {
-            transactionRepository.addTransactionWithoutCategory(
-                    transaction.getDate(),
-                    transaction.getAmount(),
-                    transaction.getDescription(),
-                    transaction.getExternalIBAN(),
-                    transaction.getType().name(),
-                    transaction.getPaymentRequest() == null ? null : transaction.getPaymentRequest().getId(),
-                    transaction.getSession().getSessionID()
-            );
-
-            return transactionRepository.findByIdAndSession(transactionRepository.findLastId(), transaction.getSession());
-        } else {
-            return transactionRepository.save(transaction);
+        Session session = transaction.getSession();
+        sessionLockService.lock(session);
+        sessionVersionService.changed(session, Resource.transactions);
+
+        if (transaction.getType() == Type.deposit) {
+            List<PaymentRequest> requests = paymentRequestService.findValidPaymentRequests(session,
+                    transaction.getDateEpoch(), transaction.getAmount());
+            transaction.setPaymentRequest(requests.isEmpty() ? null : requests.get(0));
         }
+
+        Category category = transaction.getCategory() == null ? null
+                : categoryService.findViewByIdAndSession(transaction.getCategory().getId(), session);
+        transaction.setCategory(category == null ? categoryRuleService.match(transaction) : category);
+        transactionRepository.addTransaction(transaction);
+
+        balanceLedgerService.update(session, transaction.getDateEpoch());
+        latestDateService.add(session, transaction.getDateEpoch());
+        return transaction;
     }
 
+    /**
+     * Adds every transaction in the same way as {@link #add(Transaction)}, but within a single database transaction,
+     * so they are committed together. Unlike {@link #addAll(Session, List)}, the transactions may belong to different
+     * sessions.
+     *
+     * @param transactions the transactions to add, of which the IDs, categories and payment requests are set once they
+     *                     have been added
+     */
     @Transactional
-    public List<Transaction> findBySession(Session session) {
-        return transactionRepository.findBySessionOrderByDateDesc(session);
+    public void addEach(List<Transaction> transactions) {
+        List<Session> sessions = new ArrayList<>(transactions.size());
+        transactions.forEach(transaction -> sessions.add(transaction.getSession()));
+        sessionLockService.lockAll(sessions);
+
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
     }
 
+    /**
+     * Adds all transactions to the session at once. Payment requests and category rules are matched in memory, in the
+     * order of the list, in the same way as for a single transaction, which also means that a category that is not one
+     * of the session is ignored. All transactions are then inserted using a single batch, after which the ledger is
+     * updated once.
+     *
+     * @param session      the session to which the transactions should be added
+     * @param transactions the transactions to add, of which the IDs are set once they have been added
+     */
     @Transactional
-    public List<Transaction> findBySessionAsc(Session session) {
-        return transactionRepository.findBySessionOrderByDateAsc(session);
+    public void addAll(Session session, List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        sessionLockService.lock(session);
+        sessionVersionService.changed(session, Resource.transactions);
+        List<Object[]> paymentRequests = paymentRequestService.findBySessionWithTransactionCount(session);
+        int[] paymentCounts = new int[paymentRequests.size()];
+        for (int i = 0; i < paymentRequests.size(); i++) {
+            paymentCounts[i] = ((Number) paymentRequests.get(i)[1]).intValue();
+        }
+
+        // The category of a transaction is only used when it is one of the session, as for a single transaction.
+        Map<Integer, Category> categories = new HashMap<>();
+        for (Category category : categoryService.findBySession(session)) {
+            categories.put(category.getId(), category);
+        }
+
+        long earliestDate = Long.MAX_VALUE;
+        long latestDate = Long.MIN_VALUE;
+
+        for (Transaction transaction : transactions) {
+            transaction.setSession(session);
+            earliestDate = Math.min(earliestDate, transaction.getDateEpoch());
+            latestDate = Math.max(latestDate, transaction.getDateEpoch());
+
+            // Deposits pay the first payment request with the same amount that is not filled yet.
+            if (transaction.getType() == Type.deposit) {
+                for (int i = 0; i < paymentRequests.size(); i++) {
+                    PaymentRequest paymentRequest = (PaymentRequest) paymentRequests.get(i)[0];
+
+                    if (paymentRequest.getDueDateEpoch() < transaction.getDateEpoch()
+                            && paymentRequest.getAmount().equals(transaction.getAmount())
+                            && paymentCounts[i] != paymentRequest.getRequestCount()) {
+                        transaction.setPaymentRequest(paymentRequest);
+                        paymentCounts[i]++;
+                        break;
+                    }
+                }
+            }
+
+            // Transactions without a valid category get the category of the first rule they match.
+            Category category = transaction.getCategory() == null ? null
+                    : categories.get(transaction.getCategory().getId());
+            transaction.setCategory(category == null ? categoryRuleService.match(transaction) : category);
+        }
+
+        transactionRepository.addTransactions(transactions);
+
+        balanceLedgerService.update(session, earliestDate);
+        latestDateService.add(session, latestDate);
     }
 
-    @Transactional
-    public List<Transaction> findBySession(Session session, int offset, int limit) {
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySession(Session session) {
+        return transactionRepository.findViewsBySession(session, Pageable.unpaged());
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySession(Session session, int offset, int limit) {
         if (offset == 0 && limit == 0) {
             return findBySession(session);
         }
 
         OffsetLimitPageable pageable = new OffsetLimitPageable(offset, limit);
-        return transactionRepository.findBySessionOrderByDateDesc(session, pageable);
+        return transactionRepository.findViewsBySession(session, pageable);
     }
 
-    @Transactional
-    public List<Transaction> findBySessionAndCategoryName(Session session, String categoryName) {
-        return transactionRepository.findBySessionAndCategoryNameOrderByDateDesc(session, categoryName);
+    /**
+     * Returns the transactions of the session that come after the given cursor, most recent first. Unlike an offset,
+     * the cursor allows the database to start directly at the requested position.
+     *
+     * @param session the session of which to return the transactions
+     * @param after   the position after which to start
+     * @param limit   the maximum number of transactions to return, or 0 to return all remaining transactions
+     * @return the transactions after the cursor
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySession(Session session, TransactionCursor after, int limit) {
+        return transactionRepository.findViewsBySessionAfter(session, after.getDate(), after.getId(),
+                getPageable(limit));
     }
 
-    @Transactional
-    public List<Transaction> findBySessionAndCategoryName(Session session, String categoryName, int offset, int limit) {
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySessionAndCategoryName(Session session, String categoryName) {
+        return transactionRepository.findViewsBySessionAndCategoryName(session, categoryName, Pageable.unpaged());
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySessionAndCategoryName(Session session, String categoryName, int offset,
+                                                              int limit) {
         if (offset == 0 && limit == 0) {
             return findBySessionAndCategoryName(session, categoryName);
         }
 
         OffsetLimitPageable pageable = new OffsetLimitPageable(offset, limit);
-        return transactionRepository.findBySessionAndCategoryNameOrderByDateDesc(session, categoryName, pageable);
+        return transactionRepository.findViewsBySessionAndCategoryName(session, categoryName, pageable);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    public List<TransactionView> findBySessionAndCategoryName(Session session, String categoryName,
+                                                              TransactionCursor after, int limit) {
+        return transactionRepository.findViewsBySessionAndCategoryNameAfter(session, categoryName, after.getDate(),
+                after.getId(), getPageable(limit));
+    }
+
+    /**
+     * Returns the transactions of the session that paid a payment request, in the order in which they were added.
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionView> findWithPaymentRequest(Session session) {
+        return transactionRepository.findViewsBySessionWithPaymentRequest(session);
+    }
+
+    private static Pageable getPageable(int limit) {
+        return limit == 0 ? Pageable.unpaged() : PageRequest.of(0, limit);
+    }
+
+    @Transactional(readOnly = true)
     public Transaction findByIdAndSession(int id, Session session) {
         return transactionRepository.findByIdAndSession(id, session);
     }
 
-    @Transactional
-    public Transaction findFirstByOrderByDateDesc() {
-        return transactionRepository.findFirstByOrderByDateDesc();
+    @Transactional(readOnly = true)
+    public TransactionView findViewByIdAndSession(int id, Session session) {
+        return transactionRepository.findViewByIdAndSession(id, session);
+    }
+
+    /**
+     * Returns the date of the most recent transaction of the session, which is used as the current date. Falls back
+     * to the most recent transaction of any session in case the session has no transactions yet.
+     */
+    public Long findLatestDate(Session session) {
+        return latestDateService.getLatestDate(session);
     }
 
     @Transactional
     public int update(Transaction transaction) {
-        return transactionRepository.updateTransaction(
+        sessionLockService.lock(transaction.getSession());
+        sessionVersionService.changed(transaction.getSession(), Resource.transactions);
+        // Only the date is selected, as a managed copy of the transaction would not reflect the update below.
+        Long originalDate = transactionRepository.findDateByIdAndSession(transaction.getId(), transaction.getSession());
+        if (originalDate == null) {
+            return 0;
+        }
+
+        int result = transactionRepository.updateTransaction(
                 transaction.getDate(),
+                transaction.getDateEpoch(),
                 transaction.getAmount(),
                 transaction.getDescription(),
                 transaction.getExternalIBAN(),
@@ -120,16 +289,33 @@ public class TransactionService {
                 transaction.getId(),
                 transaction.getSession()
         );
+
+        // The ledger has to be updated from the earliest of both dates, as the transaction might have moved.
+        balanceLedgerService.update(transaction.getSession(), Math.min(originalDate, transaction.getDateEpoch()));
+        latestDateService.refresh(transaction.getSession());
+        return result;
     }
 
     @Transactional
     public int updateCategory(Transaction transaction, Category category) {
+        sessionLockService.lock(transaction.getSession());
+        sessionVersionService.changed(transaction.getSession(), Resource.transactions);
         return transactionRepository.updateTransactionCategory(category, transaction.getId(), transaction.getSession());
     }
 
     @Transactional
     public int delete(int id, Session session) {
-        return transactionRepository.deleteByIdAndSession(id, session);
+        sessionLockService.lock(session);
+        sessionVersionService.changed(session, Resource.transactions);
+        Long date = transactionRepository.findDateByIdAndSession(id, session);
+        if (date == null) {
+            return 0;
+        }
+
+        int result = transactionRepository.deleteByIdAndSession(id, session);
+        balanceLedgerService.update(session, date);
+        latestDateService.refresh(session);
+        return result;
     }
 
     public class OffsetLimitPageable extends PageRequest {
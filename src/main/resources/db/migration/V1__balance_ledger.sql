@@ -0,0 +1,12 @@
+-- The balance of each session directly after every transaction, rebuilt on startup for sessions that are out of date.
+CREATE TABLE `balanceledger` (
+	`transaction_id`	INTEGER NOT NULL,
+	`session_id`	TEXT NOT NULL,
+	`date`	INTEGER NOT NULL,
+	`balance`	INTEGER NOT NULL,
+	`amount`	INTEGER NOT NULL,
+	`savings`	INTEGER NOT NULL DEFAULT 0,
+	PRIMARY KEY(`transaction_id`),
+	FOREIGN KEY(`transaction_id`) REFERENCES `transactions`(`transaction_id`) ON DELETE CASCADE
+);
+CREATE INDEX `balanceledger_session_date` ON `balanceledger` (`session_id`, `date`, `transaction_id`);
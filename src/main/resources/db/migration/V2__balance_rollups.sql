@@ -0,0 +1,12 @@
+-- The movement of the balance of each session per hour, day, week, month and year.
+CREATE TABLE `balancerollups` (
+	`session_id`	TEXT NOT NULL,
+	`interval`	TEXT NOT NULL,
+	`bucket_start`	INTEGER NOT NULL,
+	`open`	INTEGER NOT NULL,
+	`high`	INTEGER NOT NULL,
+	`low`	INTEGER NOT NULL,
+	`close`	INTEGER NOT NULL,
+	`volume`	INTEGER NOT NULL DEFAULT 0,
+	PRIMARY KEY(`session_id`, `interval`, `bucket_start`)
+);
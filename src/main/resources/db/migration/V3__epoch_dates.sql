@@ -0,0 +1,11 @@
+-- Dates in milliseconds since the epoch, backfilled from the formatted dates which are kept for the API.
+ALTER TABLE `transactions` ADD COLUMN `date_epoch` INTEGER;
+UPDATE `transactions` SET `date_epoch` = CAST(strftime('%s', substr(`date`, 1, 19)) AS INTEGER) * 1000 + CAST(substr(`date`, 21, 3) AS INTEGER);
+CREATE INDEX `transactions_session_date_epoch` ON `transactions` (`session_id`, `date_epoch`, `transaction_id`);
+
+ALTER TABLE `savingsgoals` ADD COLUMN `date_epoch` INTEGER;
+UPDATE `savingsgoals` SET `date_epoch` = CAST(strftime('%s', substr(`date`, 1, 19)) AS INTEGER) * 1000 + CAST(substr(`date`, 21, 3) AS INTEGER);
+CREATE INDEX `savingsgoals_session` ON `savingsgoals` (`session_id`);
+
+ALTER TABLE `paymentrequests` ADD COLUMN `due_date_epoch` INTEGER;
+UPDATE `paymentrequests` SET `due_date_epoch` = CAST(strftime('%s', substr(`due_date`, 1, 19)) AS INTEGER) * 1000 + CAST(substr(`due_date`, 21, 3) AS INTEGER);
@@ -0,0 +1,8 @@
+-- Every query is limited to a single session, so all indexes start with the session followed by the filtered columns.
+CREATE INDEX `categories_session_name` ON `categories` (`session_id`, `name`);
+CREATE INDEX `categoryrules_session` ON `categoryrules` (`session_id`);
+CREATE INDEX `paymentrequests_session_amount_due_date_epoch` ON `paymentrequests` (`session_id`, `amount`, `due_date_epoch`);
+
+-- Used when a category or payment request is deleted and for finding the transactions of a payment request.
+CREATE INDEX `transactions_category` ON `transactions` (`category_id`);
+CREATE INDEX `transactions_payment_request` ON `transactions` (`payment_request_id`);
@@ -0,0 +1,16 @@
+-- The amount saved towards each savings goal directly after every transaction at which savings were set aside. Goals
+-- that have not saved anything are left out. The amounts only change at these transactions, so the latest checkpoint
+-- before a transaction holds the amounts saved at that transaction.
+CREATE TABLE `savingscheckpoints` (
+	`transaction_id`	INTEGER NOT NULL,
+	`savings_goal_id`	INTEGER NOT NULL,
+	`session_id`	TEXT NOT NULL,
+	`date`	INTEGER NOT NULL,
+	`saved`	INTEGER NOT NULL,
+	PRIMARY KEY(`transaction_id`, `savings_goal_id`),
+	FOREIGN KEY(`transaction_id`) REFERENCES `transactions`(`transaction_id`) ON DELETE CASCADE
+);
+CREATE INDEX `savingscheckpoints_session_date` ON `savingscheckpoints` (`session_id`, `date`, `transaction_id`);
+
+-- Existing ledgers have no checkpoints yet, so they are rebuilt on startup.
+DELETE FROM `balanceledger`;
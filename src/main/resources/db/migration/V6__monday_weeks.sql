@@ -0,0 +1,4 @@
+-- Weeks used to start on the first day of the week of the default locale of the server and now always start on
+-- Monday, so the ledgers are rebuilt on startup, which rebuilds the rollups of every interval as well.
+DELETE FROM `balanceledger`;
+DELETE FROM `balancerollups`;
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.utwente.ing.TemporaryDatabase;
+import nl.utwente.ing.model.Dates;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts how many SQL statements each endpoint issues, both with little and with a lot of data, so no endpoint loads
+ * the associations of its results one by one. Every statement executed on a connection of the data source is counted,
+ * on any thread, as added transactions are committed by the group commit thread.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(initializers = TemporaryDatabase.class)
+@AutoConfigureMockMvc
+public class StatementCountTest {
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    /**
+     * The date of the first transaction of a test, after which every next transaction is one minute later.
+     */
+    private static final long START = 1514764800000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private String sessionID;
+    private int categoryID;
+    private int transactionCount;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionID = new JsonParser().parse(mockMvc.perform(post("/api/v1/sessions"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+        categoryID = add("/api/v1/categories", "{\"name\": \"groceries\"}").get("id").getAsInt();
+        transactionCount = 0;
+    }
+
+    @Test
+    public void getTransactions() throws Exception {
+        for (int count : new int[]{2, 40}) {
+            addTransactions(count, "withdrawal", "10.00");
+            assertStatements(1, get("/api/v1/transactions?limit=20"));
+            assertStatements(1, get("/api/v1/transactions?limit=0"));
+            assertStatements(1, get("/api/v1/transactions?limit=20&category=groceries"));
+        }
+    }
+
+    @Test
+    public void getTransaction() throws Exception {
+        for (int count : new int[]{2, 40}) {
+            addTransactions(count, "withdrawal", "10.00");
+            assertStatements(1, get("/api/v1/transactions/" + add("/api/v1/transactions",
+                    transaction("withdrawal", "10.00")).get("id").getAsInt()));
+        }
+    }
+
+    @Test
+    public void addTransaction() throws Exception {
+        addCategoryRules(1);
+
+        for (int count : new int[]{2, 40}) {
+            addTransactions(count, "withdrawal", "10.00");
+            assertStatements(16, post("/api/v1/transactions").content(transaction("withdrawal", "10.00")));
+        }
+    }
+
+    @Test
+    public void getPaymentRequests() throws Exception {
+        for (int count : new int[]{1, 10}) {
+            addPaymentRequests(count);
+            addTransactions(2 * count, "deposit", "5.00");
+            assertStatements(2, get("/api/v1/paymentRequests"));
+        }
+    }
+
+    @Test
+    public void getCategories() throws Exception {
+        for (int count : new int[]{1, 10}) {
+            for (int i = 0; i < count; i++) {
+                add("/api/v1/categories", "{\"name\": \"category " + i + "\"}");
+            }
+            assertStatements(1, get("/api/v1/categories"));
+        }
+    }
+
+    @Test
+    public void getCategoryRules() throws Exception {
+        for (int count : new int[]{1, 10}) {
+            addCategoryRules(count);
+            assertStatements(1, get("/api/v1/categoryRules"));
+        }
+    }
+
+    @Test
+    public void getSavingsGoals() throws Exception {
+        for (int count : new int[]{1, 10}) {
+            addTransactions(4 * count, "deposit", "100.00");
+            addSavingsGoals(count);
+            assertStatements(2, get("/api/v1/savingGoals"));
+        }
+    }
+
+    @Test
+    public void getBalanceHistory() throws Exception {
+        for (int count : new int[]{2, 40}) {
+            addTransactions(count, "deposit", "10.00");
+            assertStatements(2, get("/api/v1/balance/history?interval=hour&intervals=50"));
+        }
+    }
+
+    /**
+     * Performs the request for the session of the test and asserts the number of statements it issued.
+     */
+    private void assertStatements(int expected, MockHttpServletRequestBuilder request) throws Exception {
+        STATEMENTS.set(0);
+        MvcResult result = mockMvc.perform(request.header("X-session-ID", sessionID)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn();
+        String query = result.getRequest().getQueryString();
+        assertEquals(result.getRequest().getRequestURI() + (query == null ? "" : "?" + query), expected,
+                STATEMENTS.get());
+    }
+
+    private JsonObject add(String path, String body) throws Exception {
+        return new JsonParser().parse(mockMvc.perform(post(path).header("X-session-ID", sessionID)
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).getAsJsonObject();
+    }
+
+    private void addTransactions(int count, String type, String amount) throws Exception {
+        for (int i = 0; i < count; i++) {
+            add("/api/v1/transactions", transaction(type, amount));
+        }
+    }
+
+    private String transaction(String type, String amount) {
+        return "{\"date\": \"" + Dates.format(START + 60000L * transactionCount++) + "\", \"amount\": \"" + amount
+                + "\", \"externalIBAN\": \"NL39RABO0300065264\", \"type\": \"" + type + "\", \"description\": "
+                + "\"shop\", \"category\": {\"id\": " + categoryID + ", \"name\": \"groceries\"}}";
+    }
+
+    private void addPaymentRequests(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            add("/api/v1/paymentRequests", "{\"description\": \"rent\", \"due_date\": \"2017-12-01T00:00:00.000Z\", "
+                    + "\"amount\": \"5.00\", \"number_of_requests\": 2}");
+        }
+    }
+
+    private void addCategoryRules(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            add("/api/v1/categoryRules", "{\"description\": \"rule " + i + "\", \"iBAN\": \"\", \"type\": \"\", "
+                    + "\"category_id\": " + categoryID + ", \"applyOnHistory\": false}");
+        }
+    }
+
+    private void addSavingsGoals(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            add("/api/v1/savingGoals", "{\"name\": \"holiday " + i + "\", \"goal\": 1000, \"savePerMonth\": 10, "
+                    + "\"minBalanceRequired\": 0}");
+        }
+    }
+
+    /**
+     * Wraps the data source so every statement executed on one of its connections is counted.
+     */
+    @TestConfiguration
+    static class StatementCountConfig {
+
+        @Bean
+        static BeanPostProcessor statementCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? proxy(DataSource.class, bean) : bean;
+                }
+            };
+        }
+
+        /**
+         * Passes every call on to the target, counting the executions of statements and wrapping the connections and
+         * statements it returns in turn.
+         */
+        private static Object proxy(Class<?> type, Object target) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(target)) {
+                            return target;
+                        }
+                        break;
+                    case "isWrapperFor":
+                        if (((Class<?>) args[0]).isInstance(target)) {
+                            return true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+
+                if (Statement.class.isAssignableFrom(type) && method.getName().startsWith("execute")) {
+                    STATEMENTS.incrementAndGet();
+                }
+
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+
+                Class<?> returnType = method.getReturnType();
+                if (result != null && (returnType == Connection.class
+                        || Statement.class.isAssignableFrom(returnType))) {
+                    return proxy(returnType, result);
+                }
+                return result;
+            };
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.utwente.ing.TemporaryDatabase;
+import nl.utwente.ing.model.Dates;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests adding transactions in bulk, of which either all valid transactions of a request are added, or none, and
+ * of which the ID or error of every transaction is reported in the order of the request.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(initializers = TemporaryDatabase.class)
+@AutoConfigureMockMvc
+public class TransactionControllerTest {
+
+    /**
+     * The date of the first transaction of a test, after which every next transaction is one minute later.
+     */
+    private static final long START = 1514764800000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private String sessionID;
+    private int transactionCount;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionID = createSession();
+        transactionCount = 0;
+    }
+
+    @Test
+    public void addsAllValidTransactions() throws Exception {
+        JsonArray results = bulk(mockMvc, "[" + transaction("first") + "," + transaction("second") + "]",
+                status().isCreated());
+
+        assertEquals(2, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getAsJsonObject().get("index").getAsInt());
+            assertEquals(i == 0 ? "first" : "second", getTransaction(results.get(i)).get("description").getAsString());
+        }
+    }
+
+    @Test
+    public void reportsIdsAndErrorsInRequestOrder() throws Exception {
+        JsonObject missingAmount = new JsonParser().parse(transaction("missing amount")).getAsJsonObject();
+        missingAmount.remove("amount");
+        JsonObject invalidAmount = new JsonParser().parse(transaction("invalid amount")).getAsJsonObject();
+        invalidAmount.addProperty("amount", "ten");
+        JsonObject invalidCategory = new JsonParser().parse(transaction("invalid category")).getAsJsonObject();
+        invalidCategory.add("category", new JsonParser().parse("{\"id\": 1}"));
+
+        JsonArray results = bulk(mockMvc, "[" + transaction("first") + "," + missingAmount + ","
+                + transaction("second") + "," + invalidAmount + "," + invalidCategory + ","
+                + transaction("third") + "]", status().isOk());
+
+        String[] descriptions = {"first", null, "second", null, null, "third"};
+        assertEquals(descriptions.length, results.size());
+        int previousID = 0;
+        for (int i = 0; i < descriptions.length; i++) {
+            JsonObject result = results.get(i).getAsJsonObject();
+            assertEquals(i, result.get("index").getAsInt());
+
+            if (descriptions[i] == null) {
+                assertTrue(result.has("error"));
+                assertFalse(result.has("id"));
+            } else {
+                assertFalse(result.has("error"));
+                assertTrue(result.get("id").getAsInt() > previousID);
+                previousID = result.get("id").getAsInt();
+                assertEquals(descriptions[i], getTransaction(result).get("description").getAsString());
+            }
+        }
+        assertEquals(3, getTransactions().size());
+    }
+
+    @Test
+    public void ignoresCategoriesOfOtherSessions() throws Exception {
+        String otherSessionID = createSession();
+        int otherCategoryID = new JsonParser().parse(mockMvc.perform(post("/api/v1/categories")
+                .header("X-session-ID", otherSessionID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"other\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).getAsJsonObject().get("id").getAsInt();
+
+        JsonObject transaction = new JsonParser().parse(transaction("shop")).getAsJsonObject();
+        transaction.add("category", new JsonParser().parse("{\"id\": " + otherCategoryID
+                + ", \"name\": \"other\"}"));
+
+        JsonArray results = bulk(mockMvc, "[" + transaction + "]", status().isCreated());
+        assertFalse(getTransaction(results.get(0)).has("category"));
+    }
+
+    @Test
+    public void rejectsMalformedArrayAfterManyTransactions() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            body.append(transaction("shop")).append(',');
+        }
+        body.append("{\"date\": ]");
+
+        bulk(mockMvc, body.toString(), status().isMethodNotAllowed());
+        assertEquals(0, getTransactions().size());
+    }
+
+    @Test
+    public void rejectsContentAfterArray() throws Exception {
+        bulk(mockMvc, "[" + transaction("shop") + "] []", status().isMethodNotAllowed());
+        assertEquals(0, getTransactions().size());
+    }
+
+    @Test
+    public void rejectsOversizedItem() throws Exception {
+        // Characters that are read ahead count towards the previous item, so an item may exceed the limit by the size
+        // of the buffers of the readers.
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 2 * JsonCodec.MAX_ITEM_SIZE; i++) {
+            description.append('a');
+        }
+
+        bulk(mockMvc, "[" + transaction("shop") + "," + transaction(description.toString()) + "]",
+                status().isPayloadTooLarge());
+        assertEquals(0, getTransactions().size());
+    }
+
+    @Test
+    public void rejectsOversizedContentLength() throws Exception {
+        // The body itself is small, but its declared length already exceeds the limit.
+        MockMvc oversized = MockMvcBuilders.webAppContextSetup(context)
+                .addFilter(new OncePerRequestFilter() {
+                    @Override
+                    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                    FilterChain filterChain) throws ServletException, IOException {
+                        filterChain.doFilter(new HttpServletRequestWrapper(request) {
+                            @Override
+                            public long getContentLengthLong() {
+                                return JsonCodec.MAX_BULK_SIZE + 1;
+                            }
+                        }, response);
+                    }
+                })
+                .build();
+
+        bulk(oversized, "[" + transaction("shop") + "]", status().isPayloadTooLarge());
+        assertEquals(0, getTransactions().size());
+    }
+
+    @Test
+    public void reportsBadLinesOfStream() throws Exception {
+        JsonArray results = bulk(mockMvc, transaction("first") + "\n{\"date\": \n\n" + transaction("second") + "\n",
+                status().isOk());
+
+        assertEquals(3, results.size());
+        assertEquals("Transaction is not valid JSON", results.get(1).getAsJsonObject().get("error").getAsString());
+
+        JsonArray transactions = getTransactions();
+        assertEquals(2, transactions.size());
+        assertEquals(results.get(0).getAsJsonObject().get("id"), transactions.get(1).getAsJsonObject().get("id"));
+        assertEquals(results.get(2).getAsJsonObject().get("id"), transactions.get(0).getAsJsonObject().get("id"));
+    }
+
+    @Test
+    public void rejectsEmptyBody() throws Exception {
+        bulk(mockMvc, "[]", status().isMethodNotAllowed());
+        bulk(mockMvc, "\n\n", status().isMethodNotAllowed());
+    }
+
+    private String createSession() throws Exception {
+        return new JsonParser().parse(mockMvc.perform(post("/api/v1/sessions"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).getAsJsonObject().get("id").getAsString();
+    }
+
+    private JsonArray bulk(MockMvc mockMvc, String body, ResultMatcher status) throws Exception {
+        String response = mockMvc.perform(post("/api/v1/transactions/bulk").header("X-session-ID", sessionID)
+                .content(body))
+                .andExpect(status)
+                .andReturn().getResponse().getContentAsString();
+        return response.isEmpty() ? null : new JsonParser().parse(response).getAsJsonArray();
+    }
+
+    /**
+     * Returns the transaction that was added according to the given result of a bulk request.
+     */
+    private JsonObject getTransaction(JsonElement result) throws Exception {
+        return new JsonParser().parse(mockMvc.perform(get("/api/v1/transactions/"
+                + result.getAsJsonObject().get("id").getAsInt())
+                .header("X-session-ID", sessionID))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).getAsJsonObject();
+    }
+
+    /**
+     * Returns all transactions of the session, of which the last added transaction is the first.
+     */
+    private JsonArray getTransactions() throws Exception {
+        return new JsonParser().parse(mockMvc.perform(get("/api/v1/transactions?limit=0")
+                .header("X-session-ID", sessionID))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).getAsJsonArray();
+    }
+
+    private String transaction(String description) {
+        JsonObject transaction = new JsonObject();
+        transaction.addProperty("date", Dates.format(START + 60000L * transactionCount++));
+        transaction.addProperty("amount", "10.00");
+        transaction.addProperty("externalIBAN", "NL39RABO0300065264");
+        transaction.addProperty("type", "withdrawal");
+        transaction.addProperty("description", description);
+        return transaction.toString();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.controller;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import nl.utwente.ing.model.Dates;
+import nl.utwente.ing.model.TransactionView;
+import nl.utwente.ing.model.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocations of writing a page of transactions to a response through the shared {@link JsonCodec} with
+ * building a tree of JSON objects using a new Gson instance, as was done for every request before. Run the main method
+ * to include the allocation rate and the number of bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionPageBenchmark {
+
+    /**
+     * The number of transactions on a page, of which a page of all transactions of a session can be very large.
+     */
+    @Param({"20", "1000", "10000"})
+    private int size;
+
+    private final List<TransactionView> transactions = new ArrayList<>();
+
+    /**
+     * The body of a response, which is discarded as it is written.
+     */
+    private final OutputStream body = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < size; i++) {
+            long date = 1514764800000L + 60000L * i;
+            transactions.add(new TransactionView(i + 1, Dates.format(date), date, 1000 + i,
+                    i % 3 == 0 ? null : "Transaction " + i, "NL39RABO0300065264",
+                    i % 2 == 0 ? Type.deposit : Type.withdrawal, i % 2 == 0 ? i % 10 : null,
+                    i % 2 == 0 ? "Category " + i % 10 : null, null));
+        }
+    }
+
+    @Benchmark
+    public void writeStreaming() throws IOException {
+        // The response writer collects the characters in a buffer and encodes them once it is full, instead of
+        // encoding every string as it is written, which would copy each of them.
+        Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+        JsonCodec.GSON.toJson(transactions, writer);
+        writer.flush();
+    }
+
+    @Benchmark
+    public void writePreviously(Blackhole blackhole) {
+        // The returned string was encoded into the response by Spring as a whole.
+        String json = new GsonBuilder().registerTypeAdapter(TransactionView.class, new TreeAdapter()).create()
+                .toJson(transactions);
+        blackhole.consume(json.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransactionPageBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * The serializer of transactions that was used before, which builds a JSON object for every transaction.
+     */
+    private static class TreeAdapter implements JsonSerializer<TransactionView> {
+
+        @Override
+        public JsonElement serialize(TransactionView transaction, java.lang.reflect.Type type,
+                                     JsonSerializationContext jsonSerializationContext) {
+            JsonObject object = new JsonObject();
+
+            object.addProperty("id", transaction.getId());
+            object.addProperty("date", transaction.getDate());
+            object.addProperty("amount", transaction.getAmount() / 100.0);
+
+            if (transaction.getDescription() != null) {
+                object.addProperty("description", transaction.getDescription());
+            }
+
+            object.addProperty("externalIBAN", transaction.getExternalIBAN());
+            object.addProperty("type", transaction.getType().toString());
+
+            if (transaction.getCategoryId() != null) {
+                JsonObject categoryObject = new JsonObject();
+                categoryObject.addProperty("id", transaction.getCategoryId());
+                categoryObject.addProperty("name", transaction.getCategoryName());
+                object.add("category", categoryObject);
+            }
+
+            return object;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the parsing of amounts and dates by {@link Amounts} and {@link Dates} with the parsing that was done before,
+ * on the same values. Run the main method to include the allocation rate of every benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountsBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final String[] amounts = new String[SIZE];
+    private final String[] dates = new String[SIZE];
+    private SimpleDateFormat dateFormat;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            amounts[i] = random.nextInt(100000) + "." + String.format("%02d", random.nextInt(100));
+            dates[i] = Dates.format(1514764800000L + (long) (random.nextDouble() * 31536000000L));
+        }
+
+        dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        dateFormat.setTimeZone(Dates.TIME_ZONE);
+    }
+
+    @Benchmark
+    public void parseAmounts(Blackhole blackhole) throws ParseException {
+        for (String amount : amounts) {
+            blackhole.consume(Amounts.parse(amount));
+        }
+    }
+
+    @Benchmark
+    public void parseAmountsPreviously(Blackhole blackhole) {
+        for (String amount : amounts) {
+            blackhole.consume(amount.contains(".") ? Long.valueOf(amount.replace(".", ""))
+                    : Long.valueOf(amount) * 100);
+        }
+    }
+
+    @Benchmark
+    public void parseDates(Blackhole blackhole) throws ParseException {
+        for (String date : dates) {
+            blackhole.consume(Dates.parse(date));
+        }
+    }
+
+    @Benchmark
+    public void parseDatesPreviously(Blackhole blackhole) throws ParseException {
+        for (String date : dates) {
+            blackhole.consume(dateFormat.parse(date).getTime());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AmountsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
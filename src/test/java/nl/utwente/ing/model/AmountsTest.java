@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares {@link Amounts#parse(CharSequence)} with the way amounts were parsed before, which removed the decimal point
+ * and multiplied amounts without one by 100. Both agree on every amount with no or two decimals. The differences on
+ * other amounts are intended and asserted as such: a single decimal is read as tenths instead of cents, trailing zeros
+ * after the second decimal are ignored instead of multiplying the amount, and everything else is rejected.
+ */
+public class AmountsTest {
+
+    private static final int ITERATIONS = 10_000;
+
+    private static final Pattern CANONICAL = Pattern.compile("[+-]?\\d+(\\.\\d\\d)?");
+    private static final Pattern ONE_DECIMAL = Pattern.compile("[+-]?\\d+\\.\\d");
+    private static final Pattern TRAILING_ZEROS = Pattern.compile("[+-]?\\d+\\.\\d\\d0+");
+
+    /**
+     * The characters that are inserted into amounts to make them invalid.
+     */
+    private static final String NOISE = " .,+-eE_xa\u0660";
+
+    @Test
+    public void parsesExamples() throws ParseException {
+        assertEquals(1200, Amounts.parse("12"));
+        assertEquals(1250, Amounts.parse("12.50"));
+        assertEquals(1250, Amounts.parse("12.5"));
+        assertEquals(1250, Amounts.parse("12.500"));
+        assertEquals(-1205, Amounts.parse("-12.05"));
+        assertEquals(1205, Amounts.parse("+12.05"));
+        assertEquals(0, Amounts.parse("-0"));
+        assertEquals(Long.MAX_VALUE, Amounts.parse("92233720368547758.07"));
+        assertEquals(Long.MIN_VALUE, Amounts.parse("-92233720368547758.08"));
+    }
+
+    @Test
+    public void rejectsInvalidAmounts() {
+        for (String amount : new String[]{"", "-", "+", ".5", "12.", "12.501", "1.2.3", "1,50", "1e2", " 12", "12 ",
+                "--12", "+-12", "92233720368547758.08", "-92233720368547758.09", "100000000000000000000"}) {
+            assertRejected(amount);
+        }
+    }
+
+    @Test
+    public void parsesIntAmounts() throws ParseException {
+        assertEquals(Integer.MAX_VALUE, Amounts.parseInt("21474836.47"));
+        assertEquals(Integer.MIN_VALUE, Amounts.parseInt("-21474836.48"));
+
+        try {
+            Amounts.parseInt("21474836.48");
+            fail("Amount does not fit in an int");
+        } catch (ParseException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void agreesWithPreviousParsing() throws ParseException {
+        Random random = new Random(42);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            String amount = randomAmount(random);
+
+            if (CANONICAL.matcher(amount).matches()) {
+                assertEquals(amount, parsePreviously(amount), Amounts.parse(amount));
+            } else if (ONE_DECIMAL.matcher(amount).matches()) {
+                assertEquals(amount, parsePreviously(amount) * 10, Amounts.parse(amount));
+            } else if (TRAILING_ZEROS.matcher(amount).matches()) {
+                String twoDecimals = amount.substring(0, amount.indexOf('.') + 3);
+                assertEquals(amount, parsePreviously(twoDecimals), Amounts.parse(amount));
+            } else {
+                assertRejected(amount);
+            }
+        }
+    }
+
+    /**
+     * Generates an amount with up to 15 digits before and 5 digits after an optional decimal point, of which some are
+     * made invalid by inserting a character that is not part of an amount at a random position.
+     */
+    private static String randomAmount(Random random) {
+        StringBuilder amount = new StringBuilder();
+
+        int sign = random.nextInt(4);
+        if (sign == 1) {
+            amount.append('-');
+        } else if (sign == 2) {
+            amount.append('+');
+        }
+
+        int digits = random.nextInt(16);
+        for (int i = 0; i < digits; i++) {
+            amount.append((char) ('0' + random.nextInt(10)));
+        }
+
+        if (random.nextBoolean()) {
+            amount.append('.');
+            int decimals = random.nextInt(6);
+            for (int i = 0; i < decimals; i++) {
+                // Zeros are more likely, so amounts with trailing zeros are generated as well.
+                amount.append(random.nextInt(3) == 0 ? '0' : (char) ('0' + random.nextInt(10)));
+            }
+        }
+
+        if (random.nextInt(4) == 0) {
+            amount.insert(random.nextInt(amount.length() + 1), NOISE.charAt(random.nextInt(NOISE.length())));
+        }
+
+        return amount.toString();
+    }
+
+    /**
+     * Parses an amount in the way the API parsed amounts before they were parsed by {@link Amounts}.
+     */
+    private static long parsePreviously(String amount) {
+        if (amount.contains(".")) {
+            return Long.valueOf(amount.replace(".", ""));
+        } else {
+            return Long.valueOf(amount) * 100;
+        }
+    }
+
+    private static void assertRejected(String amount) {
+        try {
+            Amounts.parse(amount);
+            fail("Amount should be rejected: " + amount);
+        } catch (ParseException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.model;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares {@link Dates#parse(String)} with parsing every date using SimpleDateFormat, as was done before. The dates
+ * are generated in the format of the API, including fields that are out of range, which SimpleDateFormat rolls over.
+ */
+public class DatesTest {
+
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void parsesExamples() throws ParseException {
+        assertEquals(0, Dates.parse("1970-01-01T00:00:00.000Z"));
+        assertEquals(1514764800000L, Dates.parse("2018-01-01T00:00:00.000Z"));
+        assertEquals(951782400123L, Dates.parse("2000-02-29T00:00:00.123Z"));
+        assertEquals(Dates.parse("2018-03-01T00:00:00.000Z"), Dates.parse("2018-02-29T00:00:00.000Z"));
+    }
+
+    @Test
+    public void rejectsInvalidDates() {
+        for (String date : new String[]{"", "2018", "yesterday", "2018-01-01 00:00:00"}) {
+            try {
+                Dates.parse(date);
+                fail("Date should be rejected: " + date);
+            } catch (ParseException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void formatsParsedDates() throws ParseException {
+        Random random = new Random(42);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Dates from 1600 until 2400, which includes every date the API is expected to be used with.
+            long epoch = -11676096000000L + (long) (random.nextDouble() * 25245100800000L);
+            assertEquals(epoch, Dates.parse(Dates.format(epoch)));
+        }
+    }
+
+    @Test
+    public void agreesWithSimpleDateFormat() throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        dateFormat.setTimeZone(Dates.TIME_ZONE);
+        Random random = new Random(42);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            String date = String.format("%04d-%02d-%02dT%02d:%02d:%02d.%03dZ", random.nextInt(10000),
+                    random.nextInt(20), random.nextInt(40), random.nextInt(30), random.nextInt(70),
+                    random.nextInt(70), random.nextInt(1000));
+            assertEquals(date, dateFormat.parse(date).getTime(), Dates.parse(date));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.utwente.ing.model.Category;
+import nl.utwente.ing.model.Transaction;
+import nl.utwente.ing.model.Type;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link GroupCommitService} against a mocked {@link TransactionService}, of which adding a transaction sets its
+ * ID and category as the actual service does.
+ */
+public class GroupCommitServiceTest {
+
+    private static final Category REQUESTED = new Category(1, "requested");
+    private static final Category MATCHED = new Category(2, "matched");
+
+    private TransactionService transactionService;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService requests;
+    private GroupCommitService groupCommitService;
+
+    @Before
+    public void setUp() {
+        transactionService = mock(TransactionService.class);
+        when(transactionService.add(any())).thenAnswer(invocation -> added(invocation.getArgument(0)));
+        meterRegistry = new SimpleMeterRegistry();
+        requests = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        requests.shutdownNow();
+        if (groupCommitService != null) {
+            groupCommitService.shutdown();
+        }
+    }
+
+    @Test
+    public void commitsConcurrentTransactionsTogether() throws Exception {
+        // The window is long enough that the group is only committed once it is full.
+        groupCommitService = new GroupCommitService(transactionService, meterRegistry, 10000, 3, 30000);
+        List<List<Transaction>> groups = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            groups.add(new ArrayList<>(transactions));
+            transactions.forEach(GroupCommitServiceTest::added);
+            return null;
+        }).when(transactionService).addEach(anyList());
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<Future<Transaction>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction transaction = transaction(i);
+            transactions.add(transaction);
+            results.add(requests.submit(() -> groupCommitService.add(transaction)));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(transactions.get(i), results.get(i).get(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(i), transactions.get(i).getId());
+        }
+        assertEquals(1, groups.size());
+        assertTrue(groups.get(0).containsAll(transactions));
+        verify(transactionService, never()).add(any());
+        assertEquals(1, meterRegistry.get("transactions.commits").counter().count(), 0);
+        assertEquals(3, meterRegistry.get("transactions.commits.size").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void addsTransactionsOneByOneWhenGroupFails() throws Exception {
+        groupCommitService = new GroupCommitService(transactionService, meterRegistry, 10000, 3, 30000);
+        IllegalArgumentException invalid = new IllegalArgumentException("Invalid transaction");
+        doAnswer(invocation -> {
+            // The group is rolled back after some of the transactions were changed as if they had been added.
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(GroupCommitServiceTest::added);
+            throw invalid;
+        }).when(transactionService).addEach(anyList());
+        doAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            // Every transaction is added as requested again, with the fields set by the failed group restored.
+            assertNull(transaction.getId());
+            assertSame(REQUESTED, transaction.getCategory());
+            if (transaction.getDescription().equals("transaction 1")) {
+                throw invalid;
+            }
+            return added(transaction);
+        }).when(transactionService).add(any());
+
+        List<Future<Transaction>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction transaction = transaction(i);
+            results.add(requests.submit(() -> groupCommitService.add(transaction)));
+        }
+
+        assertEquals(Integer.valueOf(0), results.get(0).get(10, TimeUnit.SECONDS).getId());
+        try {
+            results.get(1).get(10, TimeUnit.SECONDS);
+            fail("Invalid transaction should fail its own request");
+        } catch (ExecutionException e) {
+            assertSame(invalid, e.getCause());
+        }
+        assertEquals(Integer.valueOf(2), results.get(2).get(10, TimeUnit.SECONDS).getId());
+        verify(transactionService, times(1)).addEach(anyList());
+        verify(transactionService, times(3)).add(any());
+        assertEquals(2, meterRegistry.get("transactions.commits").counter().count(), 0);
+    }
+
+    @Test
+    public void addsTransactionsDirectlyAfterShutdown() throws Exception {
+        groupCommitService = new GroupCommitService(transactionService, meterRegistry, 10000, 3, 30000);
+        groupCommitService.shutdown();
+
+        Transaction transaction = transaction(0);
+        assertSame(transaction, requests.submit(() -> groupCommitService.add(transaction)).get(10, TimeUnit.SECONDS));
+        verify(transactionService).add(transaction);
+        verify(transactionService, never()).addEach(anyList());
+    }
+
+    @Test
+    public void addsTransactionsDirectlyAfterCommitError() throws Exception {
+        groupCommitService = new GroupCommitService(transactionService, meterRegistry, 10000, 2, 30000);
+        doAnswer(invocation -> {
+            throw new StackOverflowError();
+        }).when(transactionService).addEach(anyList());
+
+        List<Future<Transaction>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Transaction transaction = transaction(i);
+            results.add(requests.submit(() -> groupCommitService.add(transaction)));
+        }
+        for (Future<Transaction> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("Transactions of the failed group should not be added");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+
+        // The thread has stopped, so the next transaction must not wait for it.
+        Transaction transaction = transaction(2);
+        assertSame(transaction, requests.submit(() -> groupCommitService.add(transaction)).get(10, TimeUnit.SECONDS));
+        verify(transactionService).add(transaction);
+    }
+
+    @Test
+    public void addsTransactionDirectlyWhenNotTakenUpInTime() throws Exception {
+        groupCommitService = new GroupCommitService(transactionService, meterRegistry, 10000, 1, 100);
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Transaction slow = transaction(0);
+        doAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if (transaction == slow) {
+                committing.countDown();
+                release.await();
+            }
+            return added(transaction);
+        }).when(transactionService).add(any());
+
+        try {
+            requests.submit(() -> groupCommitService.add(slow));
+            assertTrue(committing.await(10, TimeUnit.SECONDS));
+
+            // The thread is still committing the first transaction, so the second one is added by its request.
+            Transaction transaction = transaction(1);
+            assertSame(transaction, requests.submit(() -> groupCommitService.add(transaction))
+                    .get(10, TimeUnit.SECONDS));
+            verify(transactionService).add(transaction);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static Transaction transaction(int index) {
+        return new Transaction(null, 1514764800000L + index, 1000L, "transaction " + index, "NL39RABO0300065264",
+                Type.withdrawal, REQUESTED);
+    }
+
+    /**
+     * Changes the transaction as {@link TransactionService#add(Transaction)} does, using its index as its ID.
+     */
+    private static Transaction added(Transaction transaction) {
+        transaction.setId(Integer.parseInt(transaction.getDescription().substring("transaction ".length())));
+        transaction.setCategory(MATCHED);
+        return transaction;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018, Tom Leemreize <https://github.com/oplosthee>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.utwente.ing.service;
+
+import nl.utwente.ing.model.Session;
+import nl.utwente.ing.service.SessionVersionService.Resource;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the versions of {@link SessionVersionService} change on every write and never repeat for a session, also
+ * once the versions of that session have been evicted.
+ */
+public class SessionVersionServiceTest {
+
+    private static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+
+    @Test
+    public void changesVersionOfWrittenResources() {
+        SessionVersionService service = new SessionVersionService(TIME_TO_LIVE, 10);
+        Session session = new Session("session");
+        Session other = new Session("other");
+
+        long transactions = service.getVersion(session, Resource.transactions);
+        long categories = service.getVersion(session, Resource.categories);
+        long combined = service.getVersion(session, Resource.transactions, Resource.categories);
+        long otherTransactions = service.getVersion(other, Resource.transactions);
+
+        service.changed(session, Resource.transactions);
+
+        assertTrue(service.getVersion(session, Resource.transactions) > transactions);
+        assertEquals(categories, service.getVersion(session, Resource.categories));
+        assertTrue(service.getVersion(session, Resource.transactions, Resource.categories) > combined);
+        assertEquals(otherTransactions, service.getVersion(other, Resource.transactions));
+    }
+
+    @Test
+    public void keepsBoundedNumberOfSessions() {
+        SessionVersionService service = new SessionVersionService(TIME_TO_LIVE, 100);
+
+        for (int i = 0; i < 10000; i++) {
+            service.getVersion(new Session("read " + i), Resource.transactions);
+            service.changed(new Session("written " + i), Resource.transactions);
+            assertTrue(service.size() <= 100);
+        }
+    }
+
+    @Test
+    public void neverRepeatsVersionsOfEvictedSession() {
+        SessionVersionService service = new SessionVersionService(TIME_TO_LIVE, 1);
+        Session session = new Session("session");
+
+        long before = service.getVersion(session, Resource.transactions, Resource.categories);
+        service.changed(session, Resource.transactions);
+        long changed = service.getVersion(session, Resource.transactions, Resource.categories);
+
+        // Using another session evicts the versions of the first one, which start over above any earlier version.
+        service.changed(new Session("other"), Resource.categories);
+        service.getVersion(new Session("other"), Resource.categories);
+        assertEquals(1, service.size());
+
+        long after = service.getVersion(session, Resource.transactions, Resource.categories);
+        assertTrue(after > changed);
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedSessions() {
+        SessionVersionService service = new SessionVersionService(TIME_TO_LIVE, 10);
+        Session used = new Session("used");
+        long version = service.getVersion(used, Resource.transactions);
+
+        for (int i = 0; i < 100; i++) {
+            service.getVersion(new Session("session " + i), Resource.transactions);
+            // The session is used after every other session, so it is never the one used the longest time ago.
+            service.getVersion(used, Resource.transactions);
+        }
+
+        assertEquals(version, service.getVersion(used, Resource.transactions));
+    }
+
+    @Test
+    public void evictsExpiredSessionsFirst() throws InterruptedException {
+        SessionVersionService service = new SessionVersionService(1, 10);
+        for (int i = 0; i < 10; i++) {
+            service.getVersion(new Session("session " + i), Resource.transactions);
+        }
+        Thread.sleep(5);
+
+        service.getVersion(new Session("new"), Resource.transactions);
+        assertEquals(1, service.size());
+    }
+}